@@ -0,0 +1,191 @@
+package com.example.emotionrecognition;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.emotionrecognition.core.FacePreprocessor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Offline accuracy/latency comparison of every packaged {@link ModelVariant}.
+ * <p>
+ * Faces are read from the test APK's {@code test_faces/} assets, named
+ * {@code <Label>_<anything>.png} with a label from {@link #LABELS}. Without those assets a fixed,
+ * seeded set of synthetic 48x48 faces is used instead, so only agreement with FLOAT32 can be
+ * reported. Results are written to logcat under the {@value #TAG} tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ModelVariantComparisonTest {
+    private static final String TAG = "ModelVariantComparison";
+    private static final String FACES_DIR = "test_faces";
+    private static final int SYNTHETIC_FACES = 64;
+    private static final int TIMED_RUNS = 20;
+
+    private static final List<String> LABELS = Arrays.asList("Angry", "Disgusted", "Afraid",
+            "Happy", "Sad", "Surprised", "Neutral");
+
+    @Test
+    public void compareVariants() throws IOException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Context testContext = InstrumentationRegistry.getInstrumentation().getContext();
+
+        List<Integer> expected = new ArrayList<>();
+        ByteBuffer faces = loadFaces(testContext.getAssets(), expected);
+        int count = faces.capacity() / EmotionClassifier.FACE_BYTES;
+
+        List<ModelVariant> variants = ModelRegistry.available(appContext);
+        assertTrue("FLOAT32 model must always be packaged",
+                variants.contains(ModelVariant.FLOAT32));
+
+        int[] reference = null;
+        for (ModelVariant variant : variants) {
+            try (EmotionClassifier classifier = new EmotionClassifier(appContext, variant, 1)) {
+                int[] predicted = argmax(classifier.classifyBatch(faces, count));
+                if (variant == ModelVariant.FLOAT32) {
+                    reference = predicted;
+                }
+
+                long start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < TIMED_RUNS; ++i) {
+                    classifier.classifyBatch(faces, count);
+                }
+                long perFaceNanos = (SystemClock.elapsedRealtimeNanos() - start)
+                        / ((long) TIMED_RUNS * count);
+
+                Log.i(TAG, variant
+                        + " faces=" + count
+                        + " accuracy=" + percent(matches(predicted, expected), expected.size())
+                        + " agreementWithFloat32=" + percent(matches(predicted, reference), count)
+                        + " latency=" + perFaceNanos / 1000 + "us/face"
+                        + " " + classifier.getStats());
+            }
+        }
+    }
+
+    // packs every test face into one batch; expected receives the true
+    // label index of each face when it is known
+    private static ByteBuffer loadFaces(AssetManager assets, List<Integer> expected)
+            throws IOException {
+        FacePreprocessor preprocessor = new FacePreprocessor(EmotionClassifier.INPUT_SIZE);
+        String[] names = assets.list(FACES_DIR);
+        List<String> files = new ArrayList<>();
+        if (names != null) {
+            for (String name : names) {
+                if (labelOf(name) >= 0) {
+                    files.add(name);
+                } else {
+                    Log.w(TAG, "Skipping " + name + ", not named <Label>_<anything>");
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            return syntheticFaces(preprocessor);
+        }
+
+        ByteBuffer batch = EmotionClassifier.allocateInputBuffer(files.size());
+        Collections.sort(files);
+        for (String file : files) {
+            Bitmap face;
+            try (InputStream in = assets.open(FACES_DIR + "/" + file)) {
+                face = BitmapFactory.decodeStream(in);
+            }
+            int width = face.getWidth();
+            int height = face.getHeight();
+            int[] pixels = new int[width * height];
+            face.getPixels(pixels, 0, width, 0, 0, width, height);
+            preprocessor.process(pixels, 0, width, width, height, batch);
+            expected.add(labelOf(file));
+        }
+        return batch;
+    }
+
+    // index in LABELS of the label a test face file name starts with, or -1
+    private static int labelOf(String file) {
+        int separator = file.indexOf('_');
+        return separator < 0 ? -1 : LABELS.indexOf(file.substring(0, separator));
+    }
+
+    private static ByteBuffer syntheticFaces(FacePreprocessor preprocessor) {
+        int size = EmotionClassifier.INPUT_SIZE;
+        Random random = new Random(48);
+        ByteBuffer batch = EmotionClassifier.allocateInputBuffer(SYNTHETIC_FACES);
+        int[] pixels = new int[size * size];
+        for (int face = 0; face < SYNTHETIC_FACES; ++face) {
+            // an oval of skin tone on a noisy background with two darker eyes
+            // and a mouth, so the model sees something face-like
+            for (int y = 0; y < size; ++y) {
+                for (int x = 0; x < size; ++x) {
+                    float dx = (x - size / 2f) / (size * 0.35f);
+                    float dy = (y - size / 2f) / (size * 0.45f);
+                    int gray = dx * dx + dy * dy < 1f ? 170 : 60;
+                    boolean eye = (y - 18) * (y - 18) + Math.min((x - 16) * (x - 16),
+                            (x - 32) * (x - 32)) < 9;
+                    boolean mouth = Math.abs(y - (32 + face % 5)) < 2 && Math.abs(x - 24) < 8;
+                    if (eye || mouth) {
+                        gray = 40;
+                    }
+                    gray = Math.max(0, Math.min(255, gray + random.nextInt(41) - 20));
+                    pixels[y * size + x] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
+                }
+            }
+            preprocessor.process(pixels, 0, size, size, size, batch);
+        }
+        return batch;
+    }
+
+    private static int[] argmax(float[][] probabilities) {
+        int[] result = new int[probabilities.length];
+        for (int i = 0; i < probabilities.length; ++i) {
+            for (int c = 1; c < probabilities[i].length; ++c) {
+                if (probabilities[i][c] > probabilities[i][result[i]]) {
+                    result[i] = c;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int matches(int[] predicted, List<Integer> expected) {
+        int matches = 0;
+        for (int i = 0; i < expected.size(); ++i) {
+            if (predicted[i] == expected.get(i)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static int matches(int[] predicted, int[] reference) {
+        int matches = 0;
+        for (int i = 0; i < predicted.length; ++i) {
+            if (predicted[i] == reference[i]) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static String percent(int part, int total) {
+        return total == 0 ? "n/a" : (100 * part / total) + "%";
+    }
+}
@@ -1,21 +1,16 @@
 package com.example.emotionrecognition;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.Rect;
 
 import android.hardware.camera2.CameraCharacteristics;
-import android.media.Image;
 import android.os.Bundle;
 import android.renderscript.ScriptGroup;
 import android.util.Log;
@@ -34,30 +29,16 @@ import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.android.gms.tasks.Task;
+import com.example.emotionrecognition.core.EmotionTracker;
+import com.example.emotionrecognition.core.FrameAnalyzer;
+import com.example.emotionrecognition.core.FrameResult;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.face.Face;
-import com.google.mlkit.vision.face.FaceDetection;
-import com.google.mlkit.vision.face.FaceDetectorOptions;
-import com.google.mlkit.vision.face.FaceDetector;
 
+import org.opencv.android.OpenCVInitFuture;
 import org.opencv.android.OpenCVLoader;
-import org.tensorflow.lite.DataType;
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.common.FileUtil;
-import org.tensorflow.lite.support.image.ImageProcessor;
-import org.tensorflow.lite.support.image.TensorImage;
-import org.tensorflow.lite.support.image.ops.TransformToGrayscaleOp;
-import org.tensorflow.lite.support.tensorbuffer.TensorBuffer;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.MappedByteBuffer;
-import java.text.DecimalFormat;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
@@ -72,276 +53,279 @@ public class CameraXActivity extends MainActivity {
             "Sad", "Surprised", "Neutral");
 
     private ListenableFuture<ProcessCameraProvider> cameraProviderFuture;
+    // OpenCV native libraries, loaded once per process off the main thread
+    private OpenCVInitFuture openCVInit;
+    // set once the camera has been bound after both futures completed
+    private boolean cameraStarted;
     private PreviewView previewView;
     private TextView cameraXText;
     private Boolean frontCamera;
     private ImageView imageView;
     private boolean flipBox;
     private GraphicOverlay mGraphicOverlay;
+    private EmotionClassifier emotionClassifier;
+    // pooled frame Bitmaps handed to the face detector
+    private final FrameIngest frameIngest = new FrameIngest();
+
+    private ProcessCameraProvider cameraProvider;
+    // created with the first binding and kept across camera switches
+    private FaceDetectionStage faceDetectionStage;
+    private FramePipeline framePipeline;
+    private Preview preview;
+    private ImageAnalysis imageAnalysis;
+    // a lens switch whose latency has not been reported yet
+    private boolean switchPending;
+    // track ids of the faces in the latest result
+    private int[] faceKeys = new int[0];
+
+    // number of interpreters kept warm by the EmotionClassifier, one per classify thread
+    private static final int CLASSIFIER_POOL_SIZE = FramePipeline.CLASSIFY_THREADS;
+    // the overlay only draws bounding boxes, so contours are not needed
+    private static final FaceDetectionStage.Mode DETECTOR_MODE = FaceDetectionStage.Mode.FAST;
+    private static final boolean DETECTOR_CONTOURS = false;
+    // frames allowed between detection and publishing at the same time
+    private static final int MAX_FRAMES_IN_FLIGHT = 2;
+    // per-face score smoothing: weight of a new CNN result, and a face is
+    // classified again every few frames or once its box moved or scaled
+    // by more than the given fraction
+    private static final float SMOOTHING_ALPHA = 0.5f;
+    private static final int RECLASSIFY_INTERVAL = 3;
+    private static final float RECLASSIFY_MOVE_THRESHOLD = 0.2f;
+    private static final float RECLASSIFY_SCALE_THRESHOLD = 0.2f;
+    // overlap needed to match a face without tracking id, and frames a
+    // track survives without its face
+    private static final float TRACK_MIN_IOU = 0.3f;
+    private static final int TRACK_MAX_MISSED_FRAMES = 5;
+
+    private static final String STATE_FRONT_CAMERA = "frontCamera";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.camerax_activity);
 
-        OpenCVLoader.initDebug();
+        // start loading the native libraries first so that they load while
+        // the views, the model and the camera provider are set up
+        openCVInit = OpenCVLoader.initDebugAsync();
 
         previewView = findViewById(R.id.previewView);
         cameraXText = findViewById(R.id.cameraXText);
         imageView = findViewById(R.id.imageView);
         mGraphicOverlay = findViewById(R.id.graphic_overlay);
 
-        Intent intent = getIntent();
-        String previousActivity = (String) intent.getExtras().get("from");
-
-        // use back camera if coming from MainActivity.
-        // flip camera if coming from this same activity (after pressing
-        // the 'FLIP' button)
-        if (previousActivity.equals("MainActivity")) {
-            frontCamera = true;
-        } else {
-            Boolean newCameraChosen = (Boolean)intent.getExtras().get("cameraChosen");
-            frontCamera = !newCameraChosen;
+        // map the model and warm up the interpreters once, instead of
+        // loading them for every face on every frame
+        try {
+            ModelVariant variant = ModelRegistry.select(this, BuildConfig.EMOTION_MODEL_VARIANT);
+            emotionClassifier = new EmotionClassifier(this, variant, CLASSIFIER_POOL_SIZE);
+            Log.d("CameraXActivity", "EmotionClassifier ready: " + emotionClassifier.getStats());
+        } catch (IOException e) {
+            Log.e("CameraXActivity", "Failed to load emotion model", e);
         }
 
+        // use back camera when opened, and keep the lens chosen with the
+        // 'FLIP' button when the activity is recreated
+        frontCamera = savedInstanceState == null
+                || savedInstanceState.getBoolean(STATE_FRONT_CAMERA, true);
+
         // request a ProcessCameraProvider
         cameraProviderFuture = ProcessCameraProvider.getInstance(this);
 
+        // the camera provider and OpenCV initialize in parallel; whichever
+        // finishes last starts the camera
+        cameraProviderFuture.addListener(this::startCameraWhenReady,
+                ContextCompat.getMainExecutor(this));
+        openCVInit.addListener(this::startCameraWhenReady, ContextCompat.getMainExecutor(this));
+    }
+
+    // bind the camera once both the camera provider and OpenCV are ready;
+    // runs on the main thread, so the futures are never waited on there
+    private void startCameraWhenReady() {
+        if (cameraStarted || !cameraProviderFuture.isDone() || !openCVInit.isDone()) {
+            return;
+        }
+        cameraStarted = true;
+        // both futures are done, so get() returns right away; the pipeline
+        // does not need OpenCV, so the camera is bound even if it failed
+        try {
+            if (openCVInit.get()) {
+                Log.d("CameraXActivity", "OpenCV initialized in "
+                        + openCVInit.getInitNanos() / 1000 + " us, libraries (ns): "
+                        + openCVInit.getLoadTimesNanos());
+            } else {
+                Log.e("CameraXActivity", "OpenCV initialization failed");
+            }
+        } catch (ExecutionException e) {
+            Log.e("CameraXActivity", "OpenCV initialization failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
         // verify that initialization succeeded when View was created
-        cameraProviderFuture.addListener(() -> {
-            if (checkCameraPermissions(this))
-                try {
-                    ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
-                    bindPreview(cameraProvider);
-                } catch (ExecutionException | InterruptedException ignored) {
-                }
-        }, ContextCompat.getMainExecutor(this));
+        if (!checkCameraPermissions(this)) {
+            return;
+        }
+        try {
+            bindPreview(cameraProviderFuture.get());
+        } catch (ExecutionException e) {
+            Log.e("CameraXActivity", "Failed to get the camera provider", e.getCause());
+            cameraXText.setText("Failed to start the camera");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    // select a camera and bind the lifecycle and use cases
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(STATE_FRONT_CAMERA, frontCamera);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        unbindCamera();
+        if (emotionClassifier != null) {
+            Log.d("CameraXActivity", "EmotionClassifier stats: " + emotionClassifier.getStats());
+            emotionClassifier.close();
+            emotionClassifier = null;
+        }
+        Log.d("CameraXActivity", "FrameIngest stats: " + frameIngest);
+        frameIngest.clear();
+    }
+
+    // create the use cases and the pipeline once, then bind the selected camera
     void bindPreview(@NonNull ProcessCameraProvider cameraProvider) {
+        this.cameraProvider = cameraProvider;
+        if (framePipeline == null) {
+            createUseCases();
+        }
+        bindCameraSelector();
+    }
 
-        Preview preview = new Preview.Builder().build();
+    // bind the use cases to the lens chosen by frontCamera; the detector,
+    // the pipeline and the classifier stay as they are
+    private void bindCameraSelector() {
+        long start = System.nanoTime();
         CameraSelector cameraSelector;
 
         if (frontCamera) {
-            cameraSelector = new CameraSelector.Builder()
-                    .requireLensFacing(CameraSelector.LENS_FACING_BACK)
-                    .build();
+            cameraSelector = CameraSelector.DEFAULT_BACK_CAMERA;
         } else {
-            cameraSelector = new CameraSelector.Builder()
-                    .requireLensFacing(CameraSelector.LENS_FACING_FRONT)
-                    .build();
+            cameraSelector = CameraSelector.DEFAULT_FRONT_CAMERA;
         }
 
-        // Configure the face detector
-        FaceDetectorOptions realTimeOpts = new FaceDetectorOptions.Builder()
-                .setContourMode(FaceDetectorOptions.CONTOUR_MODE_ALL)
-                .build();
+        cameraProvider.unbindAll();
+        framePipeline.startBinding(start);
+        cameraProvider.bindToLifecycle(this, cameraSelector,
+                imageAnalysis, preview);
+    }
 
-        ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
+    private void createUseCases() {
+        preview = new Preview.Builder().build();
+
+        // one detector for the lifetime of the activity, reused for every
+        // frame of either camera
+        FaceDetectionStage detector = new FaceDetectionStage(frameIngest, DETECTOR_MODE,
+                DETECTOR_CONTOURS);
+        faceDetectionStage = detector;
+
+        imageAnalysis = new ImageAnalysis.Builder()
                 .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_RGBA_8888)
                 .setTargetResolution(new Size(480, 640))
                 .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
                 .build();
 
-        imageAnalysis.setAnalyzer(ContextCompat.getMainExecutor(this), imageProxy -> {
-            @SuppressLint("UnsafeOptInUsageError") Image image = imageProxy.getImage();
-            assert image != null;
-
-            ByteBuffer firstBuffer = image.getPlanes()[0].getBuffer();
-            firstBuffer.rewind();
-            byte[] firstBytes = new byte[firstBuffer.remaining()];
-            firstBuffer.get(firstBytes);
-
-            // Store image from camera into a Bitmap
-            Bitmap bmp = Bitmap.createBitmap(image.getWidth(), image.getHeight(),
-                    Bitmap.Config.ARGB_8888);
-            ByteBuffer buffer = ByteBuffer.wrap(firstBytes);
-            bmp.copyPixelsFromBuffer(buffer);
-            InputImage bmpImage = InputImage.fromBitmap(bmp,
-                    imageProxy.getImageInfo().getRotationDegrees());
-
-            // initialize detector
-            FaceDetector detector = FaceDetection.getClient(realTimeOpts);
-            Task<List<Face>> task = detector.process(bmpImage)
-                    .addOnSuccessListener(new OnSuccessListener<List<Face>>() {
-                        @Override
-                        public void onSuccess(List<Face> faces) {
-                            Bitmap rotatedBMP = rotateBitmap(bmp,
-                                    imageProxy.getImageInfo().getRotationDegrees());
-
-                            Bitmap croppedBMP = null;
-                            for (Face face : faces) {
-                                Rect bounds = face.getBoundingBox();
-                                if ((bounds.left + bounds.width() <= rotatedBMP.getWidth()) &&
-                                        (bounds.top + bounds.height() <= rotatedBMP.getHeight())
-                                        && bounds.left > 0 && bounds.top > 0) {
-                                    croppedBMP = Bitmap.createBitmap(rotatedBMP, bounds.left,
-                                            bounds.top, bounds.width(), bounds.height());
-                                    if (imageProxy.getImageInfo().getRotationDegrees() == 270) {
-                                        croppedBMP = flipBitmap(croppedBMP);
-                                    }
-                                    String classification = ClassifyEmotion(croppedBMP);
-                                    processFaceContourDetectionResult(faces, classification);
-                                }
-                            }
-                            /*
-                            Bitmap bmp = bmpImage.getBitmapInternal();
-                            Bitmap rotatedBMP = rotateBitmap(bmp,
-                                    imageProxy.getImageInfo().getRotationDegrees());
-                            if (imageProxy.getImageInfo().getRotationDegrees() == 270) {
-                                rotatedBMP = flipBitmap(rotatedBMP);
-                                flipBox = true;
-                            }
-
-                            for (Face face : faces) {
-                                Rect bounds = face.getBoundingBox();
-
-                                Paint boxPaint;
-                                boxPaint = new Paint();
-                                boxPaint.setColor(Color.BLACK);
-                                boxPaint.setStrokeWidth(10f);
-                                boxPaint.setStyle(Paint.Style.STROKE);
-
-                                Paint textPaint;
-                                textPaint = new Paint();
-                                textPaint.setColor(Color.BLACK);
-                                textPaint.setTextSize((bounds.right - bounds.left)/5);
-                                textPaint.setStrokeWidth(10f);
-                                textPaint.setStyle(Paint.Style.FILL);
-
-                                Bitmap croppedBMP = null;
-
-                                if ((bounds.left + bounds.width() <= rotatedBMP.getWidth()) &&
-                                        (bounds.top + bounds.height() <= rotatedBMP.getHeight())
-                                        && bounds.left > 0 && bounds.top > 0) {
-                                    croppedBMP = Bitmap.createBitmap(rotatedBMP, bounds.left,
-                                            bounds.top, bounds.width(), bounds.height());
-                                    String classification = ClassifyEmotion(croppedBMP);
-
-                                    Canvas mCanvas = new Canvas(rotatedBMP);
-
-                                }
-                            }
-                        }
-                        */
-                            }})
-                    .addOnFailureListener(new OnFailureListener() {
-                        @Override
-                        public void onFailure(@NonNull Exception e) {
-                            cameraXText.setText("Failed to run face detection");
-                        }
-                    });
-            imageProxy.close();
-        });
+        // ingest, detection, cropping and classification run on the
+        // pipeline's own threads; only the results come back to the UI
+        EmotionTracker emotionTracker = new EmotionTracker(EmotionClassifier.NUM_CLASSES,
+                SMOOTHING_ALPHA, RECLASSIFY_INTERVAL, RECLASSIFY_MOVE_THRESHOLD,
+                RECLASSIFY_SCALE_THRESHOLD, TRACK_MIN_IOU, TRACK_MAX_MISSED_FRAMES);
+        FrameAnalyzer analyzer = new FrameAnalyzer(detector, emotionClassifier, emotionTracker,
+                labels, EmotionClassifier.INPUT_SIZE);
+        framePipeline = new FramePipeline(analyzer, new FramePipeline.Listener() {
+                    @Override
+                    public void onFrameResult(FrameResult result) {
+                        processFaceContourDetectionResult(result);
+                    }
+
+                    @Override
+                    public void onDetectionFailed(Exception e) {
+                        cameraXText.setText("Failed to run face detection");
+                    }
+                }, ContextCompat.getMainExecutor(this), MAX_FRAMES_IN_FLIGHT);
+        imageAnalysis.setAnalyzer(framePipeline.getAnalysisExecutor(), framePipeline);
 
         preview.setSurfaceProvider(previewView.getSurfaceProvider());
-        cameraProvider.bindToLifecycle(this, cameraSelector,
-                imageAnalysis, preview);
     }
 
-    // https://codelabs.developers.google.com/codelabs/mlkit-android#5
-    private void processFaceContourDetectionResult(List<Face> faces, String classification) {
-
-        mGraphicOverlay.clear();
-
-        if (faces.size() == 0) {
-            cameraXText.setText("No faces were found!");
-            return;
-        } else {
-            cameraXText.setText("A face was detected!");
-            for (int i = 0; i < faces.size(); ++i) {
-                Face face = faces.get(i);
-
-                if (face == null) {
-                    return;
-                }
-
-                FaceContourGraphic faceGraphic = new FaceContourGraphic(
-                        mGraphicOverlay, classification);
-
-                if (frontCamera) {
-                    mGraphicOverlay.setCameraInfo(480, 640,
-                            CameraCharacteristics.LENS_FACING_BACK);
-                } else {
-                    mGraphicOverlay.setCameraInfo(480, 640,
-                            CameraCharacteristics.LENS_FACING_FRONT);
-                }
-
-                mGraphicOverlay.add(faceGraphic);
-                faceGraphic.updateFace(face);
-            }
-        }
+    // frame counters of the pipeline and latencies of the current camera
+    // binding, or null when unbound
+    public FramePipeline.Stats getFrameStats() {
+        return framePipeline == null ? null : framePipeline.getStats();
     }
 
-    // rotate the Bitmap returned by camera Intent
-    // to normal (vertical) orientation
-    public Bitmap rotateBitmap(Bitmap bmp, int newRotationAngle) {
-        Matrix matrix = new Matrix();
-        matrix.postRotate(newRotationAngle);
-        return Bitmap.createBitmap(bmp, 0, 0,
-                bmp.getWidth(), bmp.getHeight(), matrix, true);
+    // unbind the camera use cases and release the pipeline and detector
+    private void unbindCamera() {
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+        }
+        preview = null;
+        imageAnalysis = null;
+        if (framePipeline != null) {
+            Log.d("CameraXActivity", "FramePipeline stats: " + framePipeline.getStats());
+            framePipeline.close();
+            framePipeline = null;
+        }
+        if (faceDetectionStage != null) {
+            faceDetectionStage.close();
+            faceDetectionStage = null;
+        }
     }
 
-    // flip image horizontally when using front (selfie)
-    // camera for a more 'real' representation/view
-    // from: https://shaikhhamadali.blogspot.com/2013/08/image-flipping-mirroring-in-imageview.html
-    public Bitmap flipBitmap(Bitmap bmp) {
-        Matrix matrix = new Matrix();
-        matrix.preScale(-1.0f, 1.0f);
-        return Bitmap.createBitmap(bmp, 0, 0,
-                bmp.getWidth(), bmp.getHeight(), matrix, true);
-    }
+    // https://codelabs.developers.google.com/codelabs/mlkit-android#5
+    // graphics are retained per track and updated in place with that
+    // face's own label, and the overlay is invalidated once per result
+    private void processFaceContourDetectionResult(FrameResult result) {
+        if (switchPending) {
+            switchPending = false;
+            FramePipeline.Stats stats = framePipeline.getStats();
+            Log.d("CameraXActivity", "Camera switch: first frame after "
+                    + stats.firstFrameNanos / 1000000 + " ms, first result after "
+                    + stats.firstResultNanos / 1000000 + " ms");
+        }
 
-    // perform classification on detected face using the
-    // custom trained CNN
-    public String ClassifyEmotion (Bitmap detected_image) {
-        try {
-            Bitmap scaledResult = Bitmap.createScaledBitmap(detected_image,
-                    48, 48, true);
-            //imageView.setImageBitmap(scaledResult);
-            MappedByteBuffer tfliteModel = FileUtil.loadMappedFile(
-                    this.getApplicationContext(), "emotion_cnn.tflite");
-
-            Interpreter tflite = new Interpreter(tfliteModel);
-
-            ImageProcessor imageProcessor = new ImageProcessor.Builder()
-                    .add(new TransformToGrayscaleOp())
-                    .build();
-            TensorImage tensorImage = new TensorImage(DataType.FLOAT32);
-            tensorImage.load(scaledResult);
-            TensorImage newTensorImage = imageProcessor.process(tensorImage);
-            TensorBuffer probabilityBuffer = TensorBuffer.createFixedSize(
-                    new int[]{1, 7}, DataType.FLOAT32);
-
-            tflite.run(newTensorImage.getBuffer(), probabilityBuffer.getBuffer());
-            String classification = getClassification(probabilityBuffer.getFloatArray(), labels);
-            return classification;
-        } catch (IOException e) {
-            System.out.println("Image classification failed!");
-        } return null;
-    }
+        if (frontCamera) {
+            mGraphicOverlay.setCameraInfo(480, 640,
+                    CameraCharacteristics.LENS_FACING_BACK);
+        } else {
+            mGraphicOverlay.setCameraInfo(480, 640,
+                    CameraCharacteristics.LENS_FACING_FRONT);
+        }
 
-    // print the biggest classification probability and its corresponding index
-    private String getClassification(float[] floatArray, List<String> labels){
-        DecimalFormat df = new DecimalFormat("0");
-        float maxValue = Integer.MIN_VALUE;
-        int maxIndex = 0;
-
-        int index = 0;
-        while( index < floatArray.length ) {
-            if( maxValue < floatArray[index] ) {
-                maxValue = floatArray[index];
-                maxIndex = index;
+        List<FrameResult.FaceResult> faces = result.faces;
+        if (faceKeys.length < faces.size()) {
+            faceKeys = new int[faces.size()];
+        }
+        for (int i = 0; i < faces.size(); ++i) {
+            FrameResult.FaceResult face = faces.get(i);
+            FaceContourGraphic faceGraphic =
+                    (FaceContourGraphic) mGraphicOverlay.getGraphic(face.trackId);
+            if (faceGraphic == null) {
+                faceGraphic = new FaceContourGraphic(mGraphicOverlay);
+                mGraphicOverlay.putGraphic(face.trackId, faceGraphic);
             }
-            index++;
+            faceGraphic.update(face);
+            faceKeys[i] = face.trackId;
         }
+        mGraphicOverlay.retainGraphics(faceKeys, faces.size());
+        mGraphicOverlay.postInvalidate();
 
-        String finalResult = labels.get(maxIndex) + ": " + df.format(maxValue*100) + "%";
-
-        cameraXText.setText(finalResult);
-        return finalResult;
+        if (faces.size() == 0) {
+            cameraXText.setText("No faces were found!");
+        } else {
+            cameraXText.setText("A face was detected!");
+        }
     }
 
     // onClick function to allow user to return to MainActivity
@@ -350,13 +334,19 @@ public class CameraXActivity extends MainActivity {
         startActivity(returnIntent);
     }
 
-    // flip between front and back camera (and vice versa)
+    // flip between front and back camera (and vice versa) by rebinding
+    // only the camera selector
     public void flipCamera(View v) {
-        Intent intent = getIntent();
-        intent.putExtra("from", "CameraXActivity");
-        intent.putExtra("cameraChosen", frontCamera);
-        finish();
-        startActivity(intent);
+        if (framePipeline == null) {
+            // the camera has not been bound yet
+            return;
+        }
+        frontCamera = !frontCamera;
+        // graphics of faces seen through the other lens; their tracks are
+        // cleared by the pipeline's crop stage
+        mGraphicOverlay.clear();
+        switchPending = true;
+        bindCameraSelector();
     }
 
     // this function was obtained from (with slight changes from me):
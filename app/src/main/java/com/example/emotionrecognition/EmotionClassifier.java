@@ -0,0 +1,354 @@
+package com.example.emotionrecognition;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.emotionrecognition.core.FaceClassifier;
+import com.example.emotionrecognition.core.QuantizationCodec;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+import org.tensorflow.lite.support.common.FileUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived owner of the emotion CNN. The model file is memory-mapped once and shared by a small
+ * pool of interpreters (one per worker thread), so classifying a face only pays for the inference
+ * itself instead of re-loading the model and re-allocating tensors every frame.
+ * <p>
+ * Callers always pass float32 faces and get float32 probabilities back. For a fully quantized
+ * {@link ModelVariant} the input is quantized and the output dequantized here, using the
+ * quantization parameters the model reports for its tensors.
+ */
+public class EmotionClassifier implements FaceClassifier, Closeable {
+    private static final String TAG = "EmotionClassifier";
+
+    public static final int INPUT_SIZE = 48;
+    public static final int NUM_CLASSES = 7;
+    /** Size in bytes of one preprocessed float32 face in the input tensor. */
+    public static final int FACE_BYTES = INPUT_SIZE * INPUT_SIZE * 4;
+    private static final int FACE_PIXELS = INPUT_SIZE * INPUT_SIZE;
+
+    // how long close() waits for a busy interpreter to come back to the pool
+    private static final long CLOSE_TIMEOUT_MS = 500;
+
+    private final ModelVariant variant;
+    private final MappedByteBuffer model;
+    private final List<Slot> allSlots = new ArrayList<>();
+    private final BlockingQueue<Slot> idleSlots;
+    // null when the tensor is float32
+    private final QuantizationCodec inputCodec;
+    private final QuantizationCodec outputCodec;
+
+    private final AtomicLong inferenceCount = new AtomicLong();
+    private final AtomicLong inferenceNanos = new AtomicLong();
+    private long coldLatencyNanos;
+    private long warmLatencyNanos;
+    private volatile boolean closed;
+    private final AtomicInteger closedSlots = new AtomicInteger();
+
+    /**
+     * Maps the model, creates {@code poolSize} interpreters and runs a warm-up inference on each
+     * of them so the first real frame does not pay for tensor allocation.
+     */
+    public EmotionClassifier(Context context, int poolSize) throws IOException {
+        this(context, ModelVariant.FLOAT32, poolSize);
+    }
+
+    /** Same as {@link #EmotionClassifier(Context, int)} for a specific model variant. */
+    public EmotionClassifier(Context context, ModelVariant variant, int poolSize)
+            throws IOException {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be at least 1");
+        }
+        this.variant = variant;
+        model = FileUtil.loadMappedFile(context.getApplicationContext(), variant.getFileName());
+        idleSlots = new ArrayBlockingQueue<>(poolSize);
+
+        Interpreter.Options options = new Interpreter.Options().setNumThreads(1);
+        for (int i = 0; i < poolSize; ++i) {
+            Slot slot = new Slot(new Interpreter(model, options));
+            allSlots.add(slot);
+            idleSlots.add(slot);
+        }
+        Interpreter first = allSlots.get(0).interpreter;
+        inputCodec = codecFor(first.getInputTensor(0));
+        outputCodec = codecFor(first.getOutputTensor(0));
+        warmUp();
+    }
+
+    private static QuantizationCodec codecFor(Tensor tensor) {
+        switch (tensor.dataType()) {
+            case FLOAT32:
+                return null;
+            case UINT8:
+                return new QuantizationCodec(tensor.quantizationParams().getScale(),
+                        tensor.quantizationParams().getZeroPoint(), false);
+            case INT8:
+                return new QuantizationCodec(tensor.quantizationParams().getScale(),
+                        tensor.quantizationParams().getZeroPoint(), true);
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported tensor type: " + tensor.dataType());
+        }
+    }
+
+    // run a blank face through every interpreter twice: the first run is
+    // the cold latency (tensor allocation, kernel preparation), the second
+    // is what a steady-state frame will cost
+    private void warmUp() {
+        ByteBuffer blank = allocateInputBuffer(1);
+        float[][] output = new float[1][NUM_CLASSES];
+
+        long cold = 0;
+        long warm = 0;
+        for (Slot slot : allSlots) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            run(slot, blank, 1, output);
+            long afterCold = SystemClock.elapsedRealtimeNanos();
+            run(slot, blank, 1, output);
+            long afterWarm = SystemClock.elapsedRealtimeNanos();
+
+            cold += afterCold - start;
+            warm += afterWarm - afterCold;
+        }
+        coldLatencyNanos = cold / allSlots.size();
+        warmLatencyNanos = warm / allSlots.size();
+
+        Log.d(TAG, variant + " warm-up: cold " + coldLatencyNanos / 1000 + "us, warm "
+                + warmLatencyNanos / 1000 + "us");
+    }
+
+    /** Allocates a direct, native-order buffer large enough for {@code faces} input faces. */
+    public static ByteBuffer allocateInputBuffer(int faces) {
+        return ByteBuffer.allocateDirect(faces * FACE_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Classifies one preprocessed {@code [1, 48, 48, 1]} float32 face and returns its 7 class
+     * probabilities. Blocks while every interpreter in the pool is busy.
+     */
+    public float[] classify(ByteBuffer input) {
+        return classifyBatch(input, 1)[0];
+    }
+
+    /**
+     * Classifies {@code count} preprocessed faces packed back to back at the start of
+     * {@code input} with a single interpreter invocation. The input tensor is resized to
+     * {@code [count, 48, 48, 1]} only when the batch size changes, and the {@code [count, 7]}
+     * output is decoded in one pass.
+     */
+    @Override
+    public float[][] classifyBatch(ByteBuffer input, int count) {
+        if (count == 0) {
+            return new float[0][];
+        }
+        if (input.capacity() < count * FACE_BYTES) {
+            throw new IllegalArgumentException("Input holds fewer than " + count + " faces");
+        }
+
+        // the interpreter checks the buffer size against the tensor size,
+        // so hand it a view covering exactly the packed faces
+        ByteBuffer batch = input.duplicate();
+        batch.position(0);
+        batch.limit(count * FACE_BYTES);
+        batch = batch.slice().order(ByteOrder.nativeOrder());
+
+        Slot slot = acquire();
+        try {
+            float[][] output = new float[count][NUM_CLASSES];
+            long start = SystemClock.elapsedRealtimeNanos();
+            run(slot, batch, count, output);
+            inferenceNanos.addAndGet(SystemClock.elapsedRealtimeNanos() - start);
+            inferenceCount.addAndGet(count);
+            return output;
+        } finally {
+            release(slot);
+        }
+    }
+
+    // hand a slot back to the pool; once the classifier is closed, whoever
+    // takes a slot out of the pool first closes its interpreter, so one
+    // returned after close() stopped waiting is not leaked
+    private void release(Slot slot) {
+        idleSlots.add(slot);
+        if (closed) {
+            closeIdleSlot(0);
+        }
+    }
+
+    // close one idle interpreter, waiting up to timeoutMs for one
+    private boolean closeIdleSlot(long timeoutMs) {
+        Slot slot;
+        try {
+            slot = idleSlots.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (slot == null) {
+            return false;
+        }
+        slot.interpreter.close();
+        closedSlots.incrementAndGet();
+        return true;
+    }
+
+    // run count float32 faces from the start of batch through the slot's
+    // interpreter, converting to and from 8-bit tensors when the model
+    // is quantized
+    private void run(Slot slot, ByteBuffer batch, int count, float[][] output) {
+        Interpreter interpreter = slot.interpreter;
+        if (interpreter.getInputTensor(0).shape()[0] != count) {
+            interpreter.resizeInput(0, new int[]{count, INPUT_SIZE, INPUT_SIZE, 1});
+            interpreter.allocateTensors();
+        }
+
+        Object input = batch;
+        if (inputCodec != null) {
+            ByteBuffer quantized = slot.quantizedInput(count * FACE_PIXELS);
+            inputCodec.quantize(batch, quantized, count * FACE_PIXELS);
+            input = quantized;
+        }
+        batch.rewind();
+
+        if (outputCodec == null) {
+            interpreter.run(input, output);
+        } else {
+            ByteBuffer quantized = slot.quantizedOutput(count * NUM_CLASSES);
+            interpreter.run(input, quantized);
+            outputCodec.dequantize(quantized, output, count, NUM_CLASSES);
+        }
+    }
+
+    private Slot acquire() {
+        if (closed) {
+            throw new IllegalStateException("EmotionClassifier is closed");
+        }
+        try {
+            return idleSlots.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an interpreter", e);
+        }
+    }
+
+    public ModelVariant getVariant() {
+        return variant;
+    }
+
+    /** Returns a snapshot of the warm-up and steady-state latencies. */
+    public Stats getStats() {
+        return new Stats(variant, allSlots.size(), coldLatencyNanos, warmLatencyNanos,
+                inferenceCount.get(), inferenceNanos.get());
+    }
+
+    /**
+     * Releases every interpreter in the pool. Interpreters still running on a pipeline thread are
+     * waited for briefly, since closing one mid-inference would crash in native code; any that
+     * are still busy after that are closed as soon as their inference returns.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        while (closedSlots.get() < allSlots.size()) {
+            if (!closeIdleSlot(CLOSE_TIMEOUT_MS)) {
+                break;
+            }
+        }
+        int busy = allSlots.size() - closedSlots.get();
+        if (busy > 0) {
+            Log.w(TAG, busy + " interpreters still busy on close, closing them when they return");
+        }
+    }
+
+    /** Latency numbers reported by {@link EmotionClassifier#getStats()}. */
+    public static final class Stats {
+        public final ModelVariant variant;
+        public final int poolSize;
+        public final long coldLatencyNanos;
+        public final long warmLatencyNanos;
+        public final long inferenceCount;
+        public final long inferenceNanos;
+
+        Stats(ModelVariant variant, int poolSize, long coldLatencyNanos, long warmLatencyNanos,
+              long inferenceCount, long inferenceNanos) {
+            this.variant = variant;
+            this.poolSize = poolSize;
+            this.coldLatencyNanos = coldLatencyNanos;
+            this.warmLatencyNanos = warmLatencyNanos;
+            this.inferenceCount = inferenceCount;
+            this.inferenceNanos = inferenceNanos;
+        }
+
+        /** Time saved on the first frame by warming the interpreters up front. */
+        public long getColdWarmDeltaNanos() {
+            return coldLatencyNanos - warmLatencyNanos;
+        }
+
+        /** Average interpreter time per classified face, batched or not. */
+        public long getAverageInferenceNanos() {
+            return inferenceCount == 0 ? 0 : inferenceNanos / inferenceCount;
+        }
+
+        @Override
+        public String toString() {
+            return variant
+                    + " pool=" + poolSize
+                    + " cold=" + coldLatencyNanos / 1000 + "us"
+                    + " warm=" + warmLatencyNanos / 1000 + "us"
+                    + " avg=" + getAverageInferenceNanos() / 1000 + "us"
+                    + " n=" + inferenceCount;
+        }
+    }
+
+    // one pooled interpreter plus the 8-bit scratch tensors it needs when
+    // the model is quantized
+    private static final class Slot {
+        final Interpreter interpreter;
+        private ByteBuffer quantizedInput;
+        private ByteBuffer quantizedOutput;
+
+        Slot(Interpreter interpreter) {
+            this.interpreter = interpreter;
+        }
+
+        ByteBuffer quantizedInput(int size) {
+            if (quantizedInput == null || quantizedInput.capacity() < size) {
+                quantizedInput = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+            }
+            return view(quantizedInput, size);
+        }
+
+        ByteBuffer quantizedOutput(int size) {
+            if (quantizedOutput == null || quantizedOutput.capacity() < size) {
+                quantizedOutput = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+            }
+            return view(quantizedOutput, size);
+        }
+
+        // the interpreter wants buffers of exactly the tensor size
+        private static ByteBuffer view(ByteBuffer buffer, int size) {
+            ByteBuffer view = buffer.duplicate();
+            view.clear();
+            view.limit(size);
+            return view.slice().order(ByteOrder.nativeOrder());
+        }
+    }
+}
@@ -3,77 +3,72 @@ package com.example.emotionrecognition;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.hardware.camera2.CameraCharacteristics;
 
-import com.google.mlkit.vision.face.Face;
+import com.example.emotionrecognition.core.FrameResult;
 
-import java.util.List;
-
-/** Graphic instance for rendering face contours graphic overlay view. */
+/**
+ * Graphic instance for rendering face contours graphic overlay view. One instance is retained per
+ * tracked face and updated in place with {@link #update(FrameResult.FaceResult)}.
+ */
 public class FaceContourGraphic extends GraphicOverlay.Graphic {
 
     private static final float ID_TEXT_SIZE = 70.0f;
     private static final float BOX_STROKE_WIDTH = 5.0f;
 
-    private final Paint facePositionPaint;
-    private final Paint idPaint;
-    private final Paint boxPaint;
-
-    private final String classification;
+    // shared by every instance and never modified after class initialization
+    private static final Paint ID_PAINT = new Paint();
+    private static final Paint BOX_PAINT = new Paint();
 
-    private volatile Face face;
+    static {
+        ID_PAINT.setColor(Color.BLACK);
+        ID_PAINT.setTextSize(ID_TEXT_SIZE);
 
+        BOX_PAINT.setColor(Color.BLACK);
+        BOX_PAINT.setStyle(Paint.Style.STROKE);
+        BOX_PAINT.setStrokeWidth(BOX_STROKE_WIDTH);
+    }
 
-    public FaceContourGraphic(GraphicOverlay overlay, String classification) {
-        super(overlay);
-        
-        this.classification = classification;
-
-        facePositionPaint = new Paint();
-        facePositionPaint.setColor(Color.BLACK);
+    private volatile FrameResult.FaceResult face;
 
-        idPaint = new Paint();
-        idPaint.setColor(Color.BLACK);
-        idPaint.setTextSize(ID_TEXT_SIZE);
 
-        boxPaint = new Paint();
-        boxPaint.setColor(Color.BLACK);
-        boxPaint.setStyle(Paint.Style.STROKE);
-        boxPaint.setStrokeWidth(BOX_STROKE_WIDTH);
+    public FaceContourGraphic(GraphicOverlay overlay) {
+        super(overlay);
     }
 
     /**
-     * Updates the face instance from the detection of the most recent frame. Invalidates the relevant
-     * portions of the overlay to trigger a redraw.
+     * Updates the face box and label from the result of the most recent frame. Does not invalidate
+     * the overlay; the caller does that once after updating every graphic of the frame.
      */
-    public void updateFace(Face face) {
+    public void update(FrameResult.FaceResult face) {
         this.face = face;
-        postInvalidate();
     }
 
     /** Draws the face annotations for position on the supplied canvas. */
     @Override
     public void draw(Canvas canvas) {
-        Face face = this.face;
+        FrameResult.FaceResult face = this.face;
         if (face == null) {
             return;
         }
 
         // Scale and translate bounding box coordinates and text
         // position as needed
-        float left = translateX(face.getBoundingBox().left);
-        float right = translateX(face.getBoundingBox().right);
-        float top = scaleY(face.getBoundingBox().top);
-        float bottom = scaleY(face.getBoundingBox().bottom);
+        float left = translateX(face.left);
+        float right = translateX(face.right);
+        float top = scaleY(face.top);
+        float bottom = scaleY(face.bottom);
 
         // draw bounding box on detected face
-        canvas.drawRect(left, top, right, bottom, boxPaint);
+        canvas.drawRect(left, top, right, bottom, BOX_PAINT);
 
         // draw text on detected face
+        if (face.label == null) {
+            return;
+        }
         if (left < right) {
-            canvas.drawText(classification, left, bottom, idPaint);
+            canvas.drawText(face.label, left, bottom, ID_PAINT);
         } else {
-            canvas.drawText(classification, right, bottom, idPaint);
+            canvas.drawText(face.label, right, bottom, ID_PAINT);
         }
     }
 }
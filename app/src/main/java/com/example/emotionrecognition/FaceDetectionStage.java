@@ -0,0 +1,127 @@
+package com.example.emotionrecognition;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import com.example.emotionrecognition.core.DetectedFace;
+import com.example.emotionrecognition.core.FaceDetector;
+import com.example.emotionrecognition.core.RgbaFrame;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.face.Face;
+import com.google.mlkit.vision.face.FaceDetection;
+import com.google.mlkit.vision.face.FaceDetectorOptions;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Face detection stage of the camera pipeline and the ML Kit implementation of the core
+ * {@link FaceDetector}. It owns a single ML Kit detector that is created once per activity,
+ * reused for every frame of either camera and closed when the activity is destroyed. Tracking is
+ * enabled so that {@link Face#getTrackingId()} identifies a face across frames.
+ */
+public class FaceDetectionStage implements FaceDetector, Closeable {
+
+    /** Trade-off between detection latency and accuracy. */
+    public enum Mode {
+        FAST(FaceDetectorOptions.PERFORMANCE_MODE_FAST),
+        ACCURATE(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE);
+
+        final int performanceMode;
+
+        Mode(int performanceMode) {
+            this.performanceMode = performanceMode;
+        }
+    }
+
+    private final FrameIngest frameIngest;
+    private final Mode mode;
+    private final boolean contours;
+    private final com.google.mlkit.vision.face.FaceDetector detector;
+    private volatile boolean closed;
+
+    /**
+     * @param frameIngest copies frames into the Bitmaps ML Kit needs
+     * @param mode        detector performance mode
+     * @param contours    whether to compute face contours; they are expensive and only needed by
+     *                    graphics that draw more than the bounding box
+     */
+    public FaceDetectionStage(FrameIngest frameIngest, Mode mode, boolean contours) {
+        this.frameIngest = frameIngest;
+        this.mode = mode;
+        this.contours = contours;
+        this.detector = FaceDetection.getClient(buildOptions(mode, contours));
+    }
+
+    static FaceDetectorOptions buildOptions(Mode mode, boolean contours) {
+        return new FaceDetectorOptions.Builder()
+                .setPerformanceMode(mode.performanceMode)
+                .setContourMode(contours
+                        ? FaceDetectorOptions.CONTOUR_MODE_ALL
+                        : FaceDetectorOptions.CONTOUR_MODE_NONE)
+                // ML Kit ignores tracking while contours are enabled; the
+                // pipeline then falls back to matching faces by overlap
+                .enableTracking()
+                .build();
+    }
+
+    /**
+     * Detects the faces of an RGBA frame, blocking the calling thread (never the UI thread) until
+     * ML Kit has processed it.
+     */
+    @Override
+    public List<DetectedFace> detect(RgbaFrame frame) throws Exception {
+        Bitmap bitmap = frameIngest.acquireBitmap(frame);
+        List<Face> faces;
+        try {
+            faces = Tasks.await(process(
+                    frameIngest.toInputImage(bitmap, frame.rotationDegrees)));
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            // the detector's copy of the frame is no longer needed
+            frameIngest.release(bitmap);
+        }
+
+        List<DetectedFace> detected = new ArrayList<>(faces.size());
+        for (Face face : faces) {
+            Rect bounds = face.getBoundingBox();
+            detected.add(new DetectedFace(face.getTrackingId(),
+                    bounds.left, bounds.top, bounds.right, bounds.bottom));
+        }
+        return detected;
+    }
+
+    /** Runs face detection on one frame with the shared detector. */
+    public Task<List<Face>> process(InputImage image) {
+        if (closed) {
+            throw new IllegalStateException("FaceDetectionStage is closed");
+        }
+        return detector.process(image);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean hasContours() {
+        return contours;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Releases the detector. Frames already submitted finish with a failed task. */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            detector.close();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.emotionrecognition;
+
+import android.graphics.Bitmap;
+
+import com.example.emotionrecognition.core.RgbaFrame;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Turns RGBA_8888 analysis frames into face detector input without per-frame allocations.
+ * <p>
+ * ML Kit only accepts media images in YUV_420_888, so an RGBA frame has to reach the detector as a
+ * {@link Bitmap}. Instead of copying the plane into a {@code byte[]} and then into a brand-new
+ * Bitmap, the plane buffer is copied straight into a pooled Bitmap. A Bitmap stays checked out
+ * while its detection task is running and goes back to the pool through {@link #release(Bitmap)},
+ * so the pool only grows to the number of frames in flight.
+ */
+public class FrameIngest {
+
+    private final ArrayDeque<Bitmap> freeBitmaps = new ArrayDeque<>();
+    // scratch buffer used to drop row padding when the plane is not tightly packed
+    private ByteBuffer packedRows;
+
+    private long framesIngested;
+    private int bitmapsAllocated;
+    private long bytesAllocated;
+
+    /**
+     * Copies the pixels of an RGBA_8888 frame into a pooled Bitmap. The caller owns the
+     * returned Bitmap until it hands it back with {@link #release(Bitmap)}.
+     */
+    public synchronized Bitmap acquireBitmap(RgbaFrame frame) {
+        int width = frame.width;
+        int height = frame.height;
+        Bitmap bitmap = obtain(width, height);
+
+        ByteBuffer pixels = frame.pixels;
+        pixels.rewind();
+
+        int rowBytes = width * 4;
+        int rowStride = frame.rowStride;
+        if (rowStride == rowBytes) {
+            bitmap.copyPixelsFromBuffer(pixels);
+        } else {
+            ByteBuffer packed = getPackedRows(rowBytes * height);
+            for (int row = 0; row < height; ++row) {
+                pixels.limit(row * rowStride + rowBytes);
+                pixels.position(row * rowStride);
+                packed.put(pixels);
+            }
+            packed.rewind();
+            bitmap.copyPixelsFromBuffer(packed);
+            pixels.clear();
+        }
+
+        framesIngested++;
+        return bitmap;
+    }
+
+    /** Wraps a Bitmap from {@link #acquireBitmap(RgbaFrame)} for the face detector. */
+    public InputImage toInputImage(Bitmap bitmap, int rotationDegrees) {
+        return InputImage.fromBitmap(bitmap, rotationDegrees);
+    }
+
+    /** Returns a Bitmap to the pool once nothing reads from it anymore. */
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap != null && !bitmap.isRecycled()) {
+            freeBitmaps.push(bitmap);
+        }
+    }
+
+    /** Drops every pooled Bitmap, e.g. when the analysis resolution changes. */
+    public synchronized void clear() {
+        freeBitmaps.clear();
+        packedRows = null;
+    }
+
+    private Bitmap obtain(int width, int height) {
+        while (!freeBitmaps.isEmpty()) {
+            Bitmap bitmap = freeBitmaps.pop();
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                return bitmap;
+            }
+        }
+        bitmapsAllocated++;
+        bytesAllocated += (long) width * height * 4;
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private ByteBuffer getPackedRows(int size) {
+        if (packedRows == null || packedRows.capacity() < size) {
+            packedRows = ByteBuffer.allocateDirect(size);
+            bytesAllocated += size;
+        }
+        packedRows.clear();
+        return packedRows;
+    }
+
+    /** Number of frames copied so far. */
+    public synchronized long getFramesIngested() {
+        return framesIngested;
+    }
+
+    /** Number of Bitmaps the pool had to create; stays at the in-flight frame count. */
+    public synchronized int getBitmapsAllocated() {
+        return bitmapsAllocated;
+    }
+
+    /** Pixel memory allocated by the pool so far, in bytes. */
+    public synchronized long getBytesAllocated() {
+        return bytesAllocated;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "frames=" + framesIngested
+                + " bitmaps=" + bitmapsAllocated
+                + " bytes=" + bytesAllocated
+                + " (" + (framesIngested == 0 ? 0 : bytesAllocated / framesIngested) + "/frame)";
+    }
+}
@@ -0,0 +1,406 @@
+package com.example.emotionrecognition;
+
+import android.util.Log;
+
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import com.example.emotionrecognition.core.DetectedFace;
+import com.example.emotionrecognition.core.EmotionTracker;
+import com.example.emotionrecognition.core.FrameAnalyzer;
+import com.example.emotionrecognition.core.FrameResult;
+import com.example.emotionrecognition.core.RgbaFrame;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Staged frame analysis pipeline: ingest, detect, crop/preprocess, classify and publish.
+ * <p>
+ * The work of each stage is done by the Android-free {@link FrameAnalyzer}; this class only wraps
+ * CameraX frames and moves them between threads. Every stage runs on its own single-threaded
+ * executor with a small bounded queue, so frame N+1 can be detected while frame N is being
+ * cropped or classified, and nothing but the final {@link Listener} callback runs on the UI
+ * thread.
+ * <p>
+ * At most {@code maxFramesInFlight} frames are between ingest and publish at any time; frames
+ * arriving while the pipeline is full are dropped right away. Each {@link ImageProxy} stays open
+ * until its frame has been detected and its faces sampled from it, so CameraX's keep-only-latest
+ * backpressure actually throttles the camera instead of piling up detections. Received, dropped
+ * and processed frames are counted and available through {@link #getStats()}.
+ * <p>
+ * Faces are followed across frames by the analyzer's {@link EmotionTracker}. Only faces whose
+ * track is due for classification are cropped and sent to the CNN; every face is published with
+ * its track's smoothed scores.
+ * <p>
+ * The pipeline outlives camera bindings: switching lenses only calls {@link #startBinding}, after
+ * which results of frames from the previous binding are no longer published and the time to the
+ * first frame and the first result of the new binding is measured.
+ */
+public class FramePipeline implements ImageAnalysis.Analyzer, Closeable {
+    private static final String TAG = "FramePipeline";
+
+    // frames allowed to wait in front of each stage
+    private static final int STAGE_QUEUE_CAPACITY = 2;
+
+    /** Threads running the classify stage, i.e. interpreters the classifier needs at most. */
+    public static final int CLASSIFY_THREADS = 1;
+
+    /** Receives the results of the pipeline on the UI executor. */
+    public interface Listener {
+        /** Called once per frame with every detected face and its own scores and label. */
+        void onFrameResult(FrameResult result);
+
+        /** Called when face detection failed for a frame. */
+        void onDetectionFailed(Exception e);
+    }
+
+    private final FrameAnalyzer analyzer;
+    private final Listener listener;
+    private final Executor uiExecutor;
+
+    private final ExecutorService analysisExecutor;
+    private final ThreadPoolExecutor detectExecutor;
+    private final ThreadPoolExecutor cropExecutor;
+    private final ThreadPoolExecutor classifyExecutor;
+
+    // one permit per frame allowed between ingest and publish
+    private final Semaphore framesInFlight;
+    private final int maxFramesInFlight;
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong framesProcessed = new AtomicLong();
+
+    // bumped by startBinding(); frames of an earlier binding are still
+    // processed to free their buffers, but not published
+    private final AtomicInteger binding = new AtomicInteger();
+    private volatile long bindingStartNanos = System.nanoTime();
+    // time from the binding start to its first frame and first published
+    // result, or -1 while there is none
+    private volatile long firstFrameNanos = -1;
+    private volatile long firstResultNanos = -1;
+    // binding of the last frame cropped, only used on the crop thread
+    private int cropBinding;
+
+    // reusable batch input buffers, one per frame between crop and classify
+    private final ArrayDeque<ByteBuffer> freeBatches = new ArrayDeque<>();
+
+    private volatile boolean closed;
+
+    public FramePipeline(FrameAnalyzer analyzer, Listener listener, Executor uiExecutor,
+                         int maxFramesInFlight) {
+        if (maxFramesInFlight < 1) {
+            throw new IllegalArgumentException("maxFramesInFlight must be at least 1");
+        }
+        this.maxFramesInFlight = maxFramesInFlight;
+        this.framesInFlight = new Semaphore(maxFramesInFlight);
+        this.analyzer = analyzer;
+        this.listener = listener;
+        this.uiExecutor = uiExecutor;
+
+        analysisExecutor = Executors.newSingleThreadExecutor(
+                runnable -> new Thread(runnable, "pipeline-ingest"));
+        detectExecutor = newStageExecutor("pipeline-detect");
+        cropExecutor = newStageExecutor("pipeline-crop");
+        classifyExecutor = newStageExecutor("pipeline-classify");
+    }
+
+    private static ThreadPoolExecutor newStageExecutor(String name) {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(STAGE_QUEUE_CAPACITY),
+                runnable -> new Thread(runnable, name),
+                (runnable, executor) -> {
+                    if (runnable instanceof FrameTask) {
+                        ((FrameTask) runnable).drop();
+                    }
+                });
+    }
+
+    /** Executor the pipeline expects to be passed to {@link ImageAnalysis#setAnalyzer}. */
+    public Executor getAnalysisExecutor() {
+        return analysisExecutor;
+    }
+
+    /**
+     * Starts a new camera binding, e.g. after switching to the other lens. Frames received from
+     * now on belong to it; results of frames received before are dropped at publishing, and the
+     * tracker is cleared on the crop stage before the binding's first frame is cropped.
+     *
+     * @param startNanos {@link System#nanoTime()} at which the switch began, the origin of the
+     *                   binding's first frame and first result latencies in {@link Stats}
+     */
+    public void startBinding(long startNanos) {
+        bindingStartNanos = startNanos;
+        firstFrameNanos = -1;
+        firstResultNanos = -1;
+        binding.incrementAndGet();
+    }
+
+    /** Ingest stage: wraps the frame's pixels and hands it to the detect stage. */
+    @Override
+    public void analyze(ImageProxy imageProxy) {
+        framesReceived.incrementAndGet();
+        int frameBinding = binding.get();
+        if (firstFrameNanos < 0) {
+            firstFrameNanos = System.nanoTime() - bindingStartNanos;
+        }
+        if (closed || !framesInFlight.tryAcquire()) {
+            framesDropped.incrementAndGet();
+            imageProxy.close();
+            return;
+        }
+
+        ImageProxy.PlaneProxy plane = imageProxy.getPlanes()[0];
+        int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
+        // the front camera delivers frames rotated by 270 degrees and is
+        // mirrored so faces look the way the user sees them
+        Frame frame = new Frame(imageProxy, new RgbaFrame(plane.getBuffer(),
+                plane.getRowStride(), imageProxy.getWidth(), imageProxy.getHeight(),
+                rotationDegrees, rotationDegrees == 270), frameBinding);
+        submit(detectExecutor, frame, this::detect);
+    }
+
+    // detect stage: blocks its own thread (never the UI thread) until
+    // the detector has processed the frame
+    private void detect(Frame frame) {
+        try {
+            frame.faces = analyzer.detect(frame.rgba);
+        } catch (InterruptedException e) {
+            finish(frame, true);
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            finish(frame, true);
+            if (!closed) {
+                uiExecutor.execute(() -> listener.onDetectionFailed(e));
+            }
+            return;
+        }
+        submit(cropExecutor, frame, this::crop);
+    }
+
+    // crop stage: sample the faces due for classification straight from
+    // the camera image into the batch buffer, then let CameraX have the
+    // image back
+    private void crop(Frame frame) {
+        if (frame.binding != cropBinding) {
+            // first frame of a new binding: forget the tracks of faces seen
+            // through the other lens, after every frame of it was cropped
+            cropBinding = frame.binding;
+            analyzer.getTracker().clear();
+        }
+        frame.input = obtainBatch(frame.faces.size());
+        frame.batch = analyzer.crop(frame.rgba, frame.faces, frame.input);
+        closeImage(frame);
+        submit(classifyExecutor, frame, this::classify);
+    }
+
+    // classify stage: one batched interpreter call for the faces that need
+    // it, then publish every face with its track's smoothed scores to the UI
+    private void classify(Frame frame) {
+        FrameResult result = analyzer.classify(frame.batch);
+        finish(frame, false);
+
+        if (!closed) {
+            uiExecutor.execute(() -> publish(frame.binding, result));
+        }
+    }
+
+    // publish stage, on the UI executor: drop results of a previous binding
+    private void publish(int frameBinding, FrameResult result) {
+        if (closed || frameBinding != binding.get()) {
+            return;
+        }
+        if (firstResultNanos < 0) {
+            firstResultNanos = System.nanoTime() - bindingStartNanos;
+        }
+        listener.onFrameResult(result);
+    }
+
+    private void submit(ThreadPoolExecutor executor, Frame frame, Stage stage) {
+        if (closed) {
+            finish(frame, true);
+            return;
+        }
+        executor.execute(new FrameTask(frame, stage));
+    }
+
+    private synchronized ByteBuffer obtainBatch(int faces) {
+        int required = Math.max(faces, 1) * analyzer.getFaceBytes();
+        ByteBuffer batch = freeBatches.poll();
+        if (batch == null || batch.capacity() < required) {
+            batch = analyzer.allocateInputBuffer(faces);
+        }
+        batch.clear();
+        return batch;
+    }
+
+    private synchronized void releaseBatch(ByteBuffer batch) {
+        freeBatches.push(batch);
+    }
+
+    private void closeImage(Frame frame) {
+        if (frame.imageProxy != null) {
+            frame.imageProxy.close();
+            frame.imageProxy = null;
+        }
+    }
+
+    // take a frame out of the pipeline: close its image, hand its pooled
+    // buffers back, free its in-flight slot and count it
+    private void finish(Frame frame, boolean dropped) {
+        synchronized (frame) {
+            if (frame.finished) {
+                return;
+            }
+            frame.finished = true;
+        }
+        closeImage(frame);
+        if (frame.input != null) {
+            releaseBatch(frame.input);
+            frame.input = null;
+        }
+        if (dropped && frame.batch != null) {
+            // its faces were never classified
+            analyzer.abandon(frame.batch);
+        }
+        frame.batch = null;
+        framesInFlight.release();
+        if (dropped) {
+            framesDropped.incrementAndGet();
+        } else {
+            framesProcessed.incrementAndGet();
+        }
+    }
+
+    /** Returns a snapshot of the frame and face counters. */
+    public Stats getStats() {
+        return new Stats(framesReceived.get(), framesDropped.get(), framesProcessed.get(),
+                maxFramesInFlight - framesInFlight.availablePermits(),
+                analyzer.getTracker().getClassificationsRequested(),
+                analyzer.getTracker().getClassificationsSkipped(),
+                firstFrameNanos, firstResultNanos);
+    }
+
+    /** Stops every stage; frames still queued are dropped and their images closed. */
+    @Override
+    public void close() {
+        closed = true;
+        analysisExecutor.shutdown();
+        for (ThreadPoolExecutor executor : new ThreadPoolExecutor[]{
+                detectExecutor, cropExecutor, classifyExecutor}) {
+            for (Runnable pending : executor.shutdownNow()) {
+                if (pending instanceof FrameTask) {
+                    ((FrameTask) pending).drop();
+                }
+            }
+        }
+    }
+
+    /** Frame and face counters reported by {@link FramePipeline#getStats()}. */
+    public static final class Stats {
+        public final long framesReceived;
+        public final long framesDropped;
+        public final long framesProcessed;
+        public final int framesInFlight;
+        /** Faces sent to the CNN. */
+        public final long facesClassified;
+        /** Faces that reused their track's smoothed scores instead. */
+        public final long facesReused;
+        /** Nanoseconds from the start of the current binding to its first frame, or -1. */
+        public final long firstFrameNanos;
+        /**
+         * Nanoseconds from the start of the current binding to its first published result, or -1.
+         */
+        public final long firstResultNanos;
+
+        Stats(long framesReceived, long framesDropped, long framesProcessed, int framesInFlight,
+              long facesClassified, long facesReused, long firstFrameNanos,
+              long firstResultNanos) {
+            this.framesReceived = framesReceived;
+            this.framesDropped = framesDropped;
+            this.framesProcessed = framesProcessed;
+            this.framesInFlight = framesInFlight;
+            this.facesClassified = facesClassified;
+            this.facesReused = facesReused;
+            this.firstFrameNanos = firstFrameNanos;
+            this.firstResultNanos = firstResultNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "received=" + framesReceived
+                    + " dropped=" + framesDropped
+                    + " processed=" + framesProcessed
+                    + " inFlight=" + framesInFlight
+                    + " facesClassified=" + facesClassified
+                    + " facesReused=" + facesReused
+                    + " firstFrameMs=" + toMillis(firstFrameNanos)
+                    + " firstResultMs=" + toMillis(firstResultNanos);
+        }
+
+        private static long toMillis(long nanos) {
+            return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+
+    /** State of one frame as it moves through the stages. */
+    private static final class Frame {
+        // pixels of imageProxy, valid until it is closed
+        final RgbaFrame rgba;
+        // camera binding the frame was received in
+        final int binding;
+        ImageProxy imageProxy;
+        List<DetectedFace> faces;
+        ByteBuffer input;
+        FrameAnalyzer.Batch batch;
+        boolean finished;
+
+        Frame(ImageProxy imageProxy, RgbaFrame rgba, int binding) {
+            this.imageProxy = imageProxy;
+            this.rgba = rgba;
+            this.binding = binding;
+        }
+    }
+
+    private interface Stage {
+        void run(Frame frame);
+    }
+
+    // a stage invocation for one frame that gives the frame's buffers
+    // back if the stage rejects it or fails
+    private final class FrameTask implements Runnable {
+        private final Frame frame;
+        private final Stage stage;
+
+        FrameTask(Frame frame, Stage stage) {
+            this.frame = frame;
+            this.stage = stage;
+        }
+
+        @Override
+        public void run() {
+            try {
+                stage.run(frame);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Frame analysis failed", e);
+                finish(frame, true);
+            }
+        }
+
+        void drop() {
+            finish(frame, true);
+        }
+    }
+}
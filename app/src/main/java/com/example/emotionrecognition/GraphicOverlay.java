@@ -18,6 +18,7 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.hardware.camera2.CameraCharacteristics;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.View;
 
 import java.util.HashSet;
@@ -41,15 +42,30 @@ import java.util.Set;
  * <li>{@link Graphic#translateX(float)} and {@link Graphic#translateY(float)} adjust the
  * coordinate from the preview's coordinate system to the view coordinate system.
  * </ol>
+ * <p>
+ * <p>Graphics that follow an object across frames can instead be retained under a key with
+ * {@link #putGraphic(int, Graphic)} and updated in place. The keyed methods do not invalidate the
+ * view, so a caller updating several graphics for one frame calls {@link #postInvalidate()} once
+ * at the end.
+ * <p>
+ * <p>Every change to the set of graphics publishes a new immutable array snapshot. {@link #onDraw}
+ * only reads the latest snapshot and the scale factors, which are recomputed when the view or
+ * preview size changes, so drawing never waits for the analysis side and allocates nothing.
  */
 public class GraphicOverlay extends View {
+    private static final Graphic[] NO_GRAPHICS = new Graphic[0];
+
+    // guards the mutable collections and the preview size; never taken while drawing
     private final Object lock = new Object();
     private int previewWidth;
-    private float widthScaleFactor = 1.0f;
+    private volatile float widthScaleFactor = 1.0f;
     private int previewHeight;
-    private float heightScaleFactor = 1.0f;
-    private int facing = CameraCharacteristics.LENS_FACING_BACK;
+    private volatile float heightScaleFactor = 1.0f;
+    private volatile int facing = CameraCharacteristics.LENS_FACING_BACK;
     private Set<Graphic> graphics = new HashSet<>();
+    private final SparseArray<Graphic> keyedGraphics = new SparseArray<>();
+    // what onDraw renders; replaced, never modified, whenever the graphics change
+    private volatile Graphic[] snapshot = NO_GRAPHICS;
 
     /**
      * Base class for a custom graphics object to be rendered within the graphic overlay. Subclass
@@ -132,6 +148,8 @@ public class GraphicOverlay extends View {
     public void clear() {
         synchronized (lock) {
             graphics.clear();
+            keyedGraphics.clear();
+            publishSnapshot();
         }
         postInvalidate();
     }
@@ -141,7 +159,9 @@ public class GraphicOverlay extends View {
      */
     public void add(Graphic graphic) {
         synchronized (lock) {
-            graphics.add(graphic);
+            if (graphics.add(graphic)) {
+                publishSnapshot();
+            }
         }
         postInvalidate();
     }
@@ -151,42 +171,120 @@ public class GraphicOverlay extends View {
      */
     public void remove(Graphic graphic) {
         synchronized (lock) {
-            graphics.remove(graphic);
+            if (graphics.remove(graphic)) {
+                publishSnapshot();
+            }
         }
         postInvalidate();
     }
 
+    /**
+     * Returns the graphic retained under the given key, or null if there is none.
+     */
+    public Graphic getGraphic(int key) {
+        synchronized (lock) {
+            return keyedGraphics.get(key);
+        }
+    }
+
+    /**
+     * Retains a graphic under the given key, replacing any graphic previously stored under it.
+     * Does not invalidate the view.
+     */
+    public void putGraphic(int key, Graphic graphic) {
+        synchronized (lock) {
+            if (keyedGraphics.get(key) != graphic) {
+                keyedGraphics.put(key, graphic);
+                publishSnapshot();
+            }
+        }
+    }
+
+    /**
+     * Removes every retained graphic whose key is not among the first {@code count} entries of
+     * {@code keys}. Does not invalidate the view.
+     */
+    public void retainGraphics(int[] keys, int count) {
+        synchronized (lock) {
+            boolean removed = false;
+            for (int i = keyedGraphics.size() - 1; i >= 0; --i) {
+                if (!contains(keys, count, keyedGraphics.keyAt(i))) {
+                    keyedGraphics.removeAt(i);
+                    removed = true;
+                }
+            }
+            if (removed) {
+                publishSnapshot();
+            }
+        }
+    }
+
+    // must hold lock
+    private void publishSnapshot() {
+        Graphic[] next = new Graphic[graphics.size() + keyedGraphics.size()];
+        int i = 0;
+        for (Graphic graphic : graphics) {
+            next[i++] = graphic;
+        }
+        for (int k = 0; k < keyedGraphics.size(); ++k) {
+            next[i++] = keyedGraphics.valueAt(k);
+        }
+        snapshot = next;
+    }
+
+    private static boolean contains(int[] keys, int count, int key) {
+        for (int i = 0; i < count; ++i) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Sets the camera attributes for size and facing direction, which informs how to transform image
-     * coordinates later.
+     * coordinates later. The view is only invalidated when they actually change.
      */
     public void setCameraInfo(int previewWidth, int previewHeight, int facing) {
         synchronized (lock) {
+            if (this.previewWidth == previewWidth && this.previewHeight == previewHeight
+                    && this.facing == facing) {
+                return;
+            }
             this.previewWidth = previewWidth;
             this.previewHeight = previewHeight;
             this.facing = facing;
+            updateScaleFactors(getWidth(), getHeight());
         }
         postInvalidate();
     }
 
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        synchronized (lock) {
+            updateScaleFactors(width, height);
+        }
+    }
+
+    // must hold lock
+    private void updateScaleFactors(int width, int height) {
+        if ((previewWidth != 0) && (previewHeight != 0) && (width != 0) && (height != 0)) {
+            widthScaleFactor = (float) width / (float) previewWidth;
+            heightScaleFactor = (float) height / (float) previewHeight;
+        }
+    }
+
     /**
-     * Draws the overlay with its associated graphic objects.
+     * Draws the overlay with the graphics of the latest snapshot.
      */
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        synchronized (lock) {
-            if ((previewWidth != 0) && (previewHeight != 0)) {
-                widthScaleFactor = (float) canvas.getWidth() / (float) previewWidth;
-                heightScaleFactor = (float) canvas.getHeight() / (float) previewHeight;
-                System.out.println("widthScaleFactor: " + widthScaleFactor);
-                System.out.println("heightScaleFactor: " + heightScaleFactor);
-            }
-
-            for (Graphic graphic : graphics) {
-                graphic.draw(canvas);
-            }
+        Graphic[] graphics = snapshot;
+        for (Graphic graphic : graphics) {
+            graphic.draw(canvas);
         }
     }
 }
@@ -0,0 +1,61 @@
+package com.example.emotionrecognition;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves which {@link ModelVariant} the app runs. The configured variant is used when its model
+ * file is packaged with the app, otherwise the registry falls back to {@link ModelVariant#FLOAT32},
+ * which always ships.
+ */
+public final class ModelRegistry {
+    private static final String TAG = "ModelRegistry";
+
+    private ModelRegistry() {
+    }
+
+    /**
+     * Returns the configured variant if it is available, {@link ModelVariant#FLOAT32} otherwise.
+     *
+     * @param configured name of a {@link ModelVariant}, e.g. {@code BuildConfig.EMOTION_MODEL_VARIANT}
+     */
+    public static ModelVariant select(Context context, String configured) {
+        ModelVariant variant;
+        try {
+            variant = ModelVariant.valueOf(configured);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            Log.w(TAG, "Unknown model variant '" + configured + "', using FLOAT32");
+            return ModelVariant.FLOAT32;
+        }
+        if (!isAvailable(context, variant)) {
+            Log.w(TAG, variant + " is not packaged (" + variant.getFileName()
+                    + "), using FLOAT32");
+            return ModelVariant.FLOAT32;
+        }
+        return variant;
+    }
+
+    /** Returns every variant whose model file is packaged with the app. */
+    public static List<ModelVariant> available(Context context) {
+        List<ModelVariant> variants = new ArrayList<>();
+        for (ModelVariant variant : ModelVariant.values()) {
+            if (isAvailable(context, variant)) {
+                variants.add(variant);
+            }
+        }
+        return variants;
+    }
+
+    public static boolean isAvailable(Context context, ModelVariant variant) {
+        try (InputStream ignored = context.getAssets().open(variant.getFileName())) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
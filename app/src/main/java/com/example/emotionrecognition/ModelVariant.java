@@ -0,0 +1,32 @@
+package com.example.emotionrecognition;
+
+/**
+ * Builds of the emotion CNN the app knows how to load. All variants share the architecture and
+ * the 7 output classes; they only differ in how weights and activations are stored.
+ * <p>
+ * Only {@link #FLOAT32} ships in {@code app/src/main/ml}. The others are produced from the same
+ * Keras model with the TFLite converter and dropped next to it under the file names below:
+ * <ul>
+ * <li>{@link #DYNAMIC_RANGE}: {@code optimizations = [tf.lite.Optimize.DEFAULT]}
+ * <li>{@link #FLOAT16}: as above plus {@code target_spec.supported_types = [tf.float16]}
+ * <li>{@link #INT8}: as above plus a representative dataset,
+ * {@code TFLITE_BUILTINS_INT8} ops and uint8 (or int8) inference input and output types
+ * </ul>
+ */
+public enum ModelVariant {
+    FLOAT32("emotion_cnn.tflite"),
+    DYNAMIC_RANGE("emotion_cnn_dynamic.tflite"),
+    FLOAT16("emotion_cnn_fp16.tflite"),
+    INT8("emotion_cnn_int8.tflite");
+
+    private final String fileName;
+
+    ModelVariant(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /** Name of the model file in the app's assets. */
+    public String getFileName() {
+        return fileName;
+    }
+}
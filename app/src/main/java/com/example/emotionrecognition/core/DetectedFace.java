@@ -0,0 +1,27 @@
+package com.example.emotionrecognition.core;
+
+/**
+ * A face reported by a {@link FaceDetector}: its bounding box in upright frame coordinates and the
+ * detector's tracking id, if it has one.
+ */
+public final class DetectedFace {
+    /** Id that identifies the face across frames, or null if the detector does not track. */
+    public final Integer trackingId;
+    public final int left, top, right, bottom;
+
+    public DetectedFace(Integer trackingId, int left, int top, int right, int bottom) {
+        this.trackingId = trackingId;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public int width() {
+        return right - left;
+    }
+
+    public int height() {
+        return bottom - top;
+    }
+}
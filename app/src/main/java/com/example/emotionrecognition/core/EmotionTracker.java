@@ -0,0 +1,276 @@
+package com.example.emotionrecognition.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Follows faces across frames and keeps an exponentially smoothed emotion score vector per face.
+ * <p>
+ * Faces are matched to tracks by the detector's tracking id when it has one, and by bounding box
+ * overlap (IoU) with the previous frame otherwise. A track only asks for a new CNN run every
+ * {@code reclassifyInterval} frames, or earlier when its box moved or changed size by more than the
+ * configured thresholds since the last run, so steady scenes skip most invocations. Scores from
+ * each run are blended in with weight {@code alpha}, which also stops labels from flickering
+ * between frames.
+ * <p>
+ * A requested classification only counts once its scores arrive through {@link #accept}. Until
+ * then the request itself is the reference for the interval and movement checks, so a face is not
+ * requested again while its CNN run is in flight; if the run never happens the request is
+ * withdrawn with {@link #cancel} and the track falls back to its last accepted classification.
+ * <p>
+ * All methods are synchronized: tracks are updated from the crop stage and receive scores from the
+ * classify stage of the frame pipeline.
+ */
+public final class EmotionTracker {
+
+    private final int numClasses;
+    private final float alpha;
+    private final int reclassifyInterval;
+    private final float moveThreshold;
+    private final float scaleThreshold;
+    private final float minIou;
+    private final int maxMissedFrames;
+
+    private final List<Track> tracks = new ArrayList<>();
+    private long frame;
+    private int nextTrackId;
+
+    private long classificationsRequested;
+    private long classificationsSkipped;
+
+    /**
+     * @param numClasses         length of the score vectors
+     * @param alpha              weight of a new score vector in the moving average, in (0, 1]
+     * @param reclassifyInterval classify a track at least every this many frames
+     * @param moveThreshold      reclassify when the box centre moved by more than this fraction
+     *                           of the box size since the last classification
+     * @param scaleThreshold     reclassify when the box width or height changed by more than this
+     *                           fraction since the last classification
+     * @param minIou             minimum overlap to match an untracked face to an existing track
+     * @param maxMissedFrames    forget a track not seen for more than this many frames
+     */
+    public EmotionTracker(int numClasses, float alpha, int reclassifyInterval,
+                          float moveThreshold, float scaleThreshold, float minIou,
+                          int maxMissedFrames) {
+        if (!(alpha > 0f && alpha <= 1f)) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]: " + alpha);
+        }
+        if (reclassifyInterval < 1) {
+            throw new IllegalArgumentException("reclassifyInterval must be at least 1");
+        }
+        this.numClasses = numClasses;
+        this.alpha = alpha;
+        this.reclassifyInterval = reclassifyInterval;
+        this.moveThreshold = moveThreshold;
+        this.scaleThreshold = scaleThreshold;
+        this.minIou = minIou;
+        this.maxMissedFrames = maxMissedFrames;
+    }
+
+    /** Starts a new frame and forgets tracks that have not been seen for too long. */
+    public synchronized void beginFrame() {
+        frame++;
+        Iterator<Track> iterator = tracks.iterator();
+        while (iterator.hasNext()) {
+            if (frame - iterator.next().lastSeenFrame > maxMissedFrames + 1) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Matches one face of the current frame to a track, creating a new track if none matches.
+     * Call {@link Track#needsClassification()} on the result to decide whether to run the CNN.
+     *
+     * @param trackingId the detector's tracking id, or null if the detector does not track
+     */
+    public synchronized Track update(Integer trackingId, int left, int top, int right,
+                                     int bottom) {
+        Track track = null;
+        if (trackingId != null) {
+            for (Track candidate : tracks) {
+                if (trackingId.equals(candidate.trackingId)) {
+                    track = candidate;
+                    break;
+                }
+            }
+        } else {
+            float bestIou = minIou;
+            for (Track candidate : tracks) {
+                if (candidate.trackingId != null || candidate.lastSeenFrame == frame) {
+                    continue;
+                }
+                float iou = iou(candidate, left, top, right, bottom);
+                if (iou >= bestIou) {
+                    bestIou = iou;
+                    track = candidate;
+                }
+            }
+        }
+        if (track == null) {
+            track = new Track(nextTrackId++, trackingId, numClasses);
+            tracks.add(track);
+        }
+
+        track.left = left;
+        track.top = top;
+        track.right = right;
+        track.bottom = bottom;
+        track.lastSeenFrame = frame;
+        track.pendingClassification = shouldClassify(track);
+        if (track.pendingClassification) {
+            track.requestedFrame = frame;
+            track.requestedLeft = left;
+            track.requestedTop = top;
+            track.requestedRight = right;
+            track.requestedBottom = bottom;
+            classificationsRequested++;
+        } else {
+            classificationsSkipped++;
+        }
+        return track;
+    }
+
+    // compares against the request in flight if there is one, otherwise
+    // against the last accepted classification
+    private boolean shouldClassify(Track track) {
+        boolean requested = track.requestedFrame >= 0;
+        long lastFrame = requested ? track.requestedFrame : track.classifiedFrame;
+        int lastLeft = requested ? track.requestedLeft : track.classifiedLeft;
+        int lastTop = requested ? track.requestedTop : track.classifiedTop;
+        int lastRight = requested ? track.requestedRight : track.classifiedRight;
+        int lastBottom = requested ? track.requestedBottom : track.classifiedBottom;
+        if (lastFrame < 0 || frame - lastFrame >= reclassifyInterval) {
+            return true;
+        }
+        float width = track.right - track.left;
+        float height = track.bottom - track.top;
+        float oldWidth = lastRight - lastLeft;
+        float oldHeight = lastBottom - lastTop;
+        if (oldWidth <= 0 || oldHeight <= 0) {
+            return true;
+        }
+        if (Math.abs(width / oldWidth - 1f) > scaleThreshold
+                || Math.abs(height / oldHeight - 1f) > scaleThreshold) {
+            return true;
+        }
+        float dx = (track.left + track.right - lastLeft - lastRight) / 2f;
+        float dy = (track.top + track.bottom - lastTop - lastBottom) / 2f;
+        return Math.abs(dx) > moveThreshold * oldWidth || Math.abs(dy) > moveThreshold * oldHeight;
+    }
+
+    /**
+     * Blends a new score vector from the CNN into the track's moving average and makes its
+     * pending request the track's last classification.
+     */
+    public synchronized void accept(Track track, float[] scores) {
+        if (scores.length != numClasses) {
+            throw new IllegalArgumentException("Expected " + numClasses + " scores");
+        }
+        if (track.requestedFrame >= 0) {
+            track.classifiedFrame = track.requestedFrame;
+            track.classifiedLeft = track.requestedLeft;
+            track.classifiedTop = track.requestedTop;
+            track.classifiedRight = track.requestedRight;
+            track.classifiedBottom = track.requestedBottom;
+            track.requestedFrame = -1;
+        }
+        if (!track.hasScores) {
+            System.arraycopy(scores, 0, track.smoothed, 0, numClasses);
+            track.hasScores = true;
+        } else {
+            for (int i = 0; i < numClasses; ++i) {
+                track.smoothed[i] += alpha * (scores[i] - track.smoothed[i]);
+            }
+        }
+    }
+
+    /**
+     * Withdraws the pending classification request of a track whose face was not cropped or whose
+     * frame was dropped before its scores were accepted.
+     */
+    public synchronized void cancel(Track track) {
+        if (track.requestedFrame >= 0) {
+            track.requestedFrame = -1;
+            classificationsRequested--;
+        }
+    }
+
+    /**
+     * Copies the smoothed scores of a track into {@code out}.
+     *
+     * @return false if the track has not been classified yet
+     */
+    public synchronized boolean getScores(Track track, float[] out) {
+        if (!track.hasScores) {
+            return false;
+        }
+        System.arraycopy(track.smoothed, 0, out, 0, numClasses);
+        return true;
+    }
+
+    public synchronized int getTrackCount() {
+        return tracks.size();
+    }
+
+    /** Number of faces that were sent to the CNN. */
+    public synchronized long getClassificationsRequested() {
+        return classificationsRequested;
+    }
+
+    /** Number of faces that reused their track's scores instead of running the CNN. */
+    public synchronized long getClassificationsSkipped() {
+        return classificationsSkipped;
+    }
+
+    public synchronized void clear() {
+        tracks.clear();
+    }
+
+    private static float iou(Track track, int left, int top, int right, int bottom) {
+        float intersectionWidth = Math.min(track.right, right) - Math.max(track.left, left);
+        float intersectionHeight = Math.min(track.bottom, bottom) - Math.max(track.top, top);
+        if (intersectionWidth <= 0 || intersectionHeight <= 0) {
+            return 0f;
+        }
+        float intersection = intersectionWidth * intersectionHeight;
+        float union = (float) (track.right - track.left) * (track.bottom - track.top)
+                + (float) (right - left) * (bottom - top) - intersection;
+        return union <= 0 ? 0f : intersection / union;
+    }
+
+    /** One followed face. Fields are guarded by the owning tracker. */
+    public static final class Track {
+        private final int id;
+        private final Integer trackingId;
+        private final float[] smoothed;
+        private boolean hasScores;
+        private boolean pendingClassification;
+
+        private int left, top, right, bottom;
+        private long lastSeenFrame;
+        // last accepted classification
+        private long classifiedFrame = -1;
+        private int classifiedLeft, classifiedTop, classifiedRight, classifiedBottom;
+        // classification requested but not accepted yet
+        private long requestedFrame = -1;
+        private int requestedLeft, requestedTop, requestedRight, requestedBottom;
+
+        Track(int id, Integer trackingId, int numClasses) {
+            this.id = id;
+            this.trackingId = trackingId;
+            this.smoothed = new float[numClasses];
+        }
+
+        /** Stable id of the track, also for faces without a detector tracking id. */
+        public int getId() {
+            return id;
+        }
+
+        /** Whether the CNN should run for this face in the frame of the last update. */
+        public boolean needsClassification() {
+            return pendingClassification;
+        }
+    }
+}
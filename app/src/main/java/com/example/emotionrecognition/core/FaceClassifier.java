@@ -0,0 +1,15 @@
+package com.example.emotionrecognition.core;
+
+import java.nio.ByteBuffer;
+
+/** Scores batches of preprocessed faces. Implemented by the TFLite emotion CNN on the device. */
+public interface FaceClassifier {
+
+    /**
+     * Classifies the first {@code count} faces of {@code input}, each a {@code size x size}
+     * grayscale image of native-order float32 values.
+     *
+     * @return one score vector per face
+     */
+    float[][] classifyBatch(ByteBuffer input, int count);
+}
@@ -0,0 +1,14 @@
+package com.example.emotionrecognition.core;
+
+import java.util.List;
+
+/** Finds the faces in a frame. Implemented by ML Kit on the device and by stubs on the host. */
+public interface FaceDetector {
+
+    /**
+     * Detects the faces of one frame. May block until detection has finished.
+     *
+     * @throws Exception if detection failed; the frame is dropped
+     */
+    List<DetectedFace> detect(RgbaFrame frame) throws Exception;
+}
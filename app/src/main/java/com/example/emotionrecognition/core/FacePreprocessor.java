@@ -0,0 +1,187 @@
+package com.example.emotionrecognition.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fused grayscale, resize and normalize kernel for the emotion CNN input.
+ * <p>
+ * Reads ARGB_8888 pixels (as returned by {@code Bitmap.getPixels}), or RGBA_8888 camera frames
+ * through an affine sampling map (see {@link FaceRoiExtractor}), and writes
+ * {@code (gray - mean) / std} for every pixel of a bilinearly resized {@code size x size} image
+ * directly into a native-order float32 {@link ByteBuffer}. This replaces scaling into a new Bitmap,
+ * loading it into a {@code TensorImage} and running a grayscale {@code ImageProcessor}, each of
+ * which allocated per call. The kernel itself allocates nothing after construction and has no
+ * Android dependencies, so it runs unchanged in JVM unit tests and benchmarks.
+ * <p>
+ * Instances keep small scratch tables and are not thread-safe.
+ */
+public final class FacePreprocessor {
+
+    // ITU-R BT.601 luma weights, the same ones TransformToGrayscaleOp uses
+    static final float RED_WEIGHT = 0.299f;
+    static final float GREEN_WEIGHT = 0.587f;
+    static final float BLUE_WEIGHT = 0.114f;
+
+    private final int size;
+    private final float mean;
+    private final float invStd;
+
+    // per output column: left source column and weight of the right one
+    private final int[] xIndex;
+    private final float[] xWeight;
+
+    /** Creates a kernel that writes raw 0..255 gray values, which is what the model expects. */
+    public FacePreprocessor(int size) {
+        this(size, 0f, 1f);
+    }
+
+    public FacePreprocessor(int size, float mean, float std) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be at least 1");
+        }
+        if (std == 0f) {
+            throw new IllegalArgumentException("std must not be 0");
+        }
+        this.size = size;
+        this.mean = mean;
+        this.invStd = 1f / std;
+        this.xIndex = new int[size];
+        this.xWeight = new float[size];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /** Number of bytes {@link #process} writes per face. */
+    public int getOutputBytes() {
+        return size * size * 4;
+    }
+
+    /**
+     * Resizes the {@code width x height} ARGB image starting at {@code pixels[offset]} to
+     * {@code size x size}, converts it to normalized grayscale and writes it at the position of
+     * {@code output}, advancing the position past it.
+     *
+     * @param stride number of ints between the starts of two source rows
+     */
+    public void process(int[] pixels, int offset, int stride, int width, int height,
+                        ByteBuffer output) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Empty source image");
+        }
+        if (offset < 0 || stride < width
+                || offset + (long) (height - 1) * stride + width > pixels.length) {
+            throw new IllegalArgumentException("Source image exceeds the pixel array");
+        }
+        if (output.remaining() < getOutputBytes()) {
+            throw new IllegalArgumentException("Output buffer is too small");
+        }
+
+        // sample at pixel centres, like a filtered Bitmap scale
+        float scaleX = (float) width / size;
+        float scaleY = (float) height / size;
+        for (int i = 0; i < size; ++i) {
+            float x = clamp((i + 0.5f) * scaleX - 0.5f, width - 1);
+            int x1 = (int) x;
+            xIndex[i] = x1;
+            xWeight[i] = x1 + 1 < width ? x - x1 : 0f;
+        }
+
+        int base = output.position();
+        for (int j = 0; j < size; ++j) {
+            float y = clamp((j + 0.5f) * scaleY - 0.5f, height - 1);
+            int y1 = (int) y;
+            float fy = y1 + 1 < height ? y - y1 : 0f;
+            int row1 = offset + y1 * stride;
+            int row2 = fy == 0f ? row1 : row1 + stride;
+
+            int rowBase = base + j * size * 4;
+            for (int i = 0; i < size; ++i) {
+                int x1 = xIndex[i];
+                float fx = xWeight[i];
+                int x2 = fx == 0f ? x1 : x1 + 1;
+
+                float g11 = gray(pixels[row1 + x1]);
+                float g21 = gray(pixels[row1 + x2]);
+                float g12 = gray(pixels[row2 + x1]);
+                float g22 = gray(pixels[row2 + x2]);
+                float top = g11 + (g21 - g11) * fx;
+                float bottom = g12 + (g22 - g12) * fx;
+                float value = top + (bottom - top) * fy;
+
+                output.putFloat(rowBase + i * 4, (value - mean) * invStd);
+            }
+        }
+        output.position(base + getOutputBytes());
+    }
+
+    /**
+     * Samples a {@code size x size} face from an RGBA_8888 frame, converts it to normalized
+     * grayscale and writes it at the position of {@code output}, advancing the position past it.
+     * <p>
+     * Output pixel (i, j) is sampled bilinearly at the frame point
+     * {@code (x0 + i * xi + j * xj, y0 + i * yi + j * yj)}, where integer coordinates are pixel
+     * centres; points outside the frame are clamped to its edges. The map can therefore scale,
+     * mirror and rotate by multiples of 90 degrees in the same pass.
+     *
+     * @param rowStride bytes between the starts of two frame rows
+     */
+    public void process(ByteBuffer frame, int rowStride, int frameWidth, int frameHeight,
+                        float x0, float xi, float xj, float y0, float yi, float yj,
+                        ByteBuffer output) {
+        if (frameWidth < 1 || frameHeight < 1) {
+            throw new IllegalArgumentException("Empty source image");
+        }
+        if (output.remaining() < getOutputBytes()) {
+            throw new IllegalArgumentException("Output buffer is too small");
+        }
+
+        int base = output.position();
+        int index = 0;
+        for (int j = 0; j < size; ++j) {
+            for (int i = 0; i < size; ++i) {
+                float x = clamp(x0 + i * xi + j * xj, frameWidth - 1);
+                float y = clamp(y0 + i * yi + j * yj, frameHeight - 1);
+                int x1 = (int) x;
+                int y1 = (int) y;
+                int x2 = Math.min(x1 + 1, frameWidth - 1);
+                int y2 = Math.min(y1 + 1, frameHeight - 1);
+                float fx = x - x1;
+                float fy = y - y1;
+
+                float topLeft = gray(frame, rowStride, x1, y1);
+                float bottomLeft = gray(frame, rowStride, x1, y2);
+                float top = topLeft + (gray(frame, rowStride, x2, y1) - topLeft) * fx;
+                float bottom = bottomLeft + (gray(frame, rowStride, x2, y2) - bottomLeft) * fx;
+                float value = top + (bottom - top) * fy;
+
+                output.putFloat(base + index * 4, (value - mean) * invStd);
+                index++;
+            }
+        }
+        output.position(base + getOutputBytes());
+    }
+
+    /** Luminance of one ARGB_8888 pixel in the range 0..255. */
+    public static float gray(int argb) {
+        return RED_WEIGHT * ((argb >> 16) & 0xFF)
+                + GREEN_WEIGHT * ((argb >> 8) & 0xFF)
+                + BLUE_WEIGHT * (argb & 0xFF);
+    }
+
+    // luminance of the RGBA_8888 pixel (x, y)
+    private static float gray(ByteBuffer frame, int rowStride, int x, int y) {
+        int offset = y * rowStride + x * 4;
+        return RED_WEIGHT * (frame.get(offset) & 0xFF)
+                + GREEN_WEIGHT * (frame.get(offset + 1) & 0xFF)
+                + BLUE_WEIGHT * (frame.get(offset + 2) & 0xFF);
+    }
+
+    private static float clamp(float value, int max) {
+        if (value < 0f) {
+            return 0f;
+        }
+        return value > max ? max : value;
+    }
+}
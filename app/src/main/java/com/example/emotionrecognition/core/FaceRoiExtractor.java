@@ -0,0 +1,115 @@
+package com.example.emotionrecognition.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Samples detected faces straight out of an unrotated RGBA camera frame into the emotion CNN's
+ * grayscale float input.
+ * <p>
+ * Face bounding boxes are reported in upright coordinates, i.e. after the frame has been rotated
+ * by its rotation degrees. Instead of rotating the whole frame, cropping it and mirroring the
+ * crop, every output pixel is mapped through a single affine transform (scale to the box, mirror,
+ * rotate back to sensor coordinates), which the fused {@link FacePreprocessor} kernel samples,
+ * grayscales and normalizes in one pass. Only the {@code size x size} output pixels are ever
+ * touched and nothing is allocated.
+ */
+public final class FaceRoiExtractor {
+
+    private final int size;
+    private final FacePreprocessor preprocessor;
+
+    private ByteBuffer frame;
+    private int rowStride;
+    private int frameWidth;
+    private int frameHeight;
+    private int rotationDegrees;
+    private boolean mirror;
+
+    /** @param size width and height of the sampled face, e.g. 48 */
+    public FaceRoiExtractor(int size) {
+        this(new FacePreprocessor(size));
+    }
+
+    /** Samples faces with the given kernel, e.g. one that normalizes for the model. */
+    public FaceRoiExtractor(FacePreprocessor preprocessor) {
+        this.size = preprocessor.getSize();
+        this.preprocessor = preprocessor;
+    }
+
+    /**
+     * Sets the frame the next faces are extracted from.
+     *
+     * @param frame           RGBA_8888 pixels of the frame in sensor orientation
+     * @param rowStride       bytes between the starts of two rows
+     * @param frameWidth      frame width in sensor orientation
+     * @param frameHeight     frame height in sensor orientation
+     * @param rotationDegrees clockwise rotation (0, 90, 180 or 270) that makes the frame upright
+     * @param mirror          whether faces are flipped horizontally after rotation
+     */
+    public void setFrame(ByteBuffer frame, int rowStride, int frameWidth, int frameHeight,
+                         int rotationDegrees, boolean mirror) {
+        if (rotationDegrees % 90 != 0) {
+            throw new IllegalArgumentException("Unsupported rotation: " + rotationDegrees);
+        }
+        this.frame = frame;
+        this.rowStride = rowStride;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.rotationDegrees = ((rotationDegrees % 360) + 360) % 360;
+        this.mirror = mirror;
+    }
+
+    /**
+     * Writes the grayscale {@code size x size} sample of one face as native-order float32 values
+     * at the position of {@code output} and advances the position past it.
+     *
+     * @return false, without writing anything, if the box lies entirely outside the frame
+     */
+    public boolean extract(int left, int top, int width, int height, ByteBuffer output) {
+        boolean sideways = rotationDegrees == 90 || rotationDegrees == 270;
+        int uprightWidth = sideways ? frameHeight : frameWidth;
+        int uprightHeight = sideways ? frameWidth : frameHeight;
+        if (width <= 0 || height <= 0 || left >= uprightWidth || top >= uprightHeight
+                || left + width <= 0 || top + height <= 0) {
+            return false;
+        }
+
+        // output pixel (i, j) maps to the upright point
+        // (u0 + i * du, v0 + j * dv), sampled at pixel centres
+        float du = (float) width / size;
+        float dv = (float) height / size;
+        float u0 = left + 0.5f * du;
+        float v0 = top + 0.5f * dv;
+        if (mirror) {
+            u0 = left + width - 0.5f * du;
+            du = -du;
+        }
+
+        // fold the inverse rotation into the same transform:
+        // sensor (x, y) = (x0 + i * xi + j * xj, y0 + i * yi + j * yj)
+        float x0, xi, xj, y0, yi, yj;
+        switch (rotationDegrees) {
+            case 90:
+                x0 = v0;               xi = 0;   xj = dv;
+                y0 = frameHeight - u0; yi = -du; yj = 0;
+                break;
+            case 180:
+                x0 = frameWidth - u0;  xi = -du; xj = 0;
+                y0 = frameHeight - v0; yi = 0;   yj = -dv;
+                break;
+            case 270:
+                x0 = frameWidth - v0;  xi = 0;   xj = -dv;
+                y0 = u0;               yi = du;  yj = 0;
+                break;
+            default:
+                x0 = u0; xi = du; xj = 0;
+                y0 = v0; yi = 0;  yj = dv;
+                break;
+        }
+
+        // shift by half a pixel so integer coordinates are pixel centres
+        preprocessor.process(frame, rowStride, frameWidth, frameHeight,
+                x0 - 0.5f, xi, xj, y0 - 0.5f, yi, yj, output);
+        return true;
+    }
+}
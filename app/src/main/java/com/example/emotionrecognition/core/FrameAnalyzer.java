@@ -0,0 +1,189 @@
+package com.example.emotionrecognition.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The face, crop/preprocess and classify steps of frame analysis, free of Android dependencies.
+ * <p>
+ * The steps are exposed separately so that a threaded pipeline can run each one on its own stage:
+ * {@link #detect} may be called from any thread, {@link #crop} must always be called from the
+ * same thread and {@link #classify} may run on another one. {@link #analyze} runs all of them on
+ * the calling thread, which is what host-side tests and benchmarks use.
+ */
+public final class FrameAnalyzer {
+
+    private final FaceDetector detector;
+    private final FaceClassifier classifier;
+    private final EmotionTracker tracker;
+    private final List<String> labels;
+    private final int numClasses;
+    private final int faceBytes;
+
+    // only used from the crop step's thread
+    private final FaceRoiExtractor roiExtractor;
+
+    // input buffer of analyze()
+    private ByteBuffer input;
+
+    /**
+     * @param classifier may be null if no model could be loaded; faces are then tracked but
+     *                   never classified
+     * @param inputSize  width and height of the classifier's input faces
+     */
+    public FrameAnalyzer(FaceDetector detector, FaceClassifier classifier,
+                         EmotionTracker tracker, List<String> labels, int inputSize) {
+        this.detector = detector;
+        this.classifier = classifier;
+        this.tracker = tracker;
+        this.labels = labels;
+        this.numClasses = labels.size();
+        this.faceBytes = inputSize * inputSize * 4;
+        this.roiExtractor = new FaceRoiExtractor(inputSize);
+    }
+
+    /** Allocates an input buffer with room for the given number of faces. */
+    public ByteBuffer allocateInputBuffer(int faces) {
+        return ByteBuffer.allocateDirect(Math.max(faces, 1) * faceBytes)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    /** Size in bytes of one preprocessed face in an input buffer. */
+    public int getFaceBytes() {
+        return faceBytes;
+    }
+
+    public EmotionTracker getTracker() {
+        return tracker;
+    }
+
+    /** Runs detection, cropping and classification of one frame on the calling thread. */
+    public FrameResult analyze(RgbaFrame frame) throws Exception {
+        List<DetectedFace> faces = detect(frame);
+        if (input == null || input.capacity() < faces.size() * faceBytes) {
+            input = allocateInputBuffer(faces.size());
+        }
+        input.clear();
+        return classify(crop(frame, faces, input));
+    }
+
+    /** Detect step: finds the faces of a frame. */
+    public List<DetectedFace> detect(RgbaFrame frame) throws Exception {
+        return detector.detect(frame);
+    }
+
+    /**
+     * Crop step: matches the faces to their tracks and samples the ones due for classification
+     * from the frame into {@code input}, starting at its position. The frame's pixels are not
+     * needed anymore once this returns.
+     */
+    public Batch crop(RgbaFrame frame, List<DetectedFace> faces, ByteBuffer input) {
+        List<EmotionTracker.Track> tracks = new ArrayList<>(faces.size());
+        List<EmotionTracker.Track> classified = new ArrayList<>(faces.size());
+        tracker.beginFrame();
+        for (DetectedFace face : faces) {
+            tracks.add(tracker.update(face.trackingId,
+                    face.left, face.top, face.right, face.bottom));
+        }
+
+        roiExtractor.setFrame(frame.pixels, frame.rowStride, frame.width, frame.height,
+                frame.rotationDegrees, frame.mirrored);
+        for (int i = 0; i < faces.size(); ++i) {
+            EmotionTracker.Track track = tracks.get(i);
+            if (!track.needsClassification()) {
+                continue;
+            }
+            DetectedFace face = faces.get(i);
+            if (roiExtractor.extract(face.left, face.top, face.width(), face.height(), input)) {
+                classified.add(track);
+            } else {
+                tracker.cancel(track);
+            }
+        }
+        return new Batch(faces, tracks, classified, input);
+    }
+
+    /**
+     * Withdraws the classification requests of a batch that will not reach {@link #classify},
+     * e.g. because its frame was dropped, so its faces are classified again with the next frame.
+     */
+    public void abandon(Batch batch) {
+        for (EmotionTracker.Track track : batch.classifiedTracks) {
+            tracker.cancel(track);
+        }
+    }
+
+    /**
+     * Classify step: one batched classifier call for the cropped faces, then every face of the
+     * frame paired with its track's smoothed scores.
+     */
+    public FrameResult classify(Batch batch) {
+        int count = batch.classifiedTracks.size();
+        if (classifier != null && count > 0) {
+            float[][] scores = classifier.classifyBatch(batch.input, count);
+            for (int i = 0; i < count; ++i) {
+                tracker.accept(batch.classifiedTracks.get(i), scores[i]);
+            }
+        } else {
+            abandon(batch);
+        }
+
+        List<FrameResult.FaceResult> faces = new ArrayList<>(batch.faces.size());
+        for (int i = 0; i < batch.faces.size(); ++i) {
+            EmotionTracker.Track track = batch.tracks.get(i);
+            DetectedFace face = batch.faces.get(i);
+            float[] scores = new float[numClasses];
+            String label = null;
+            if (tracker.getScores(track, scores)) {
+                label = formatClassification(scores, labels);
+            } else {
+                scores = null;
+            }
+            faces.add(new FrameResult.FaceResult(track.getId(), face.left, face.top,
+                    face.right, face.bottom, scores, label));
+        }
+        return new FrameResult(faces);
+    }
+
+    // format the biggest classification probability and its corresponding label
+    public static String formatClassification(float[] floatArray, List<String> labels) {
+        DecimalFormat df = new DecimalFormat("0");
+        float maxValue = Integer.MIN_VALUE;
+        int maxIndex = 0;
+
+        int index = 0;
+        while( index < floatArray.length ) {
+            if( maxValue < floatArray[index] ) {
+                maxValue = floatArray[index];
+                maxIndex = index;
+            }
+            index++;
+        }
+
+        return labels.get(maxIndex) + ": " + df.format(maxValue*100) + "%";
+    }
+
+    /** Output of the crop step for one frame, consumed by the classify step. */
+    public static final class Batch {
+        final List<DetectedFace> faces;
+        final List<EmotionTracker.Track> tracks;
+        final List<EmotionTracker.Track> classifiedTracks;
+        final ByteBuffer input;
+
+        Batch(List<DetectedFace> faces, List<EmotionTracker.Track> tracks,
+              List<EmotionTracker.Track> classifiedTracks, ByteBuffer input) {
+            this.faces = faces;
+            this.tracks = tracks;
+            this.classifiedTracks = classifiedTracks;
+            this.input = input;
+        }
+
+        /** Number of faces cropped for the classifier. */
+        public int getClassifiedCount() {
+            return classifiedTracks.size();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.emotionrecognition.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything the pipeline publishes for one analyzed frame: every detected face paired with its
+ * own box, smoothed scores and label. Instances are immutable once published.
+ */
+public final class FrameResult {
+    /** Faces in detection order. */
+    public final List<FaceResult> faces;
+
+    public FrameResult(List<FaceResult> faces) {
+        this.faces = Collections.unmodifiableList(faces);
+    }
+
+    @Override
+    public String toString() {
+        return "FrameResult" + faces;
+    }
+
+    /** One face of a {@link FrameResult}. */
+    public static final class FaceResult {
+        /** Id of the face's track, stable across frames. */
+        public final int trackId;
+        /** Bounding box in the detector's upright image coordinates. */
+        public final int left, top, right, bottom;
+        /** Smoothed class scores, or null if the face has not been classified yet. */
+        public final float[] scores;
+        /** Label and confidence of the best class, or null along with {@link #scores}. */
+        public final String label;
+
+        public FaceResult(int trackId, int left, int top, int right, int bottom, float[] scores,
+                          String label) {
+            this.trackId = trackId;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.scores = scores;
+            this.label = label;
+        }
+
+        public boolean isClassified() {
+            return scores != null;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + trackId + " " + left + "," + top + "-" + right + "," + bottom
+                    + (label != null ? " " + label : "") + "]";
+        }
+    }
+}
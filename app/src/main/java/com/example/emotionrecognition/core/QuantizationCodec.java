@@ -0,0 +1,84 @@
+package com.example.emotionrecognition.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Affine quantization of a uint8 or int8 tensor, {@code real = scale * (quantized - zeroPoint)}.
+ * <p>
+ * Fully quantized models take and return 8-bit tensors, while the rest of the pipeline works on
+ * float32 values. This converts between the two in place of the interpreter, using the scale and
+ * zero point the model reports for the tensor.
+ */
+public final class QuantizationCodec {
+
+    private final float scale;
+    private final int zeroPoint;
+    private final boolean signed;
+    private final int min;
+    private final int max;
+
+    /**
+     * @param signed true for int8 tensors, false for uint8 tensors
+     */
+    public QuantizationCodec(float scale, int zeroPoint, boolean signed) {
+        if (!(scale > 0f)) {
+            throw new IllegalArgumentException("Quantization scale must be positive: " + scale);
+        }
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+        this.signed = signed;
+        this.min = signed ? -128 : 0;
+        this.max = signed ? 127 : 255;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public int getZeroPoint() {
+        return zeroPoint;
+    }
+
+    public boolean isSigned() {
+        return signed;
+    }
+
+    /** Quantizes one value, rounding to nearest and saturating to the 8-bit range. */
+    public byte quantize(float value) {
+        int q = Math.round(value / scale) + zeroPoint;
+        if (q < min) {
+            q = min;
+        } else if (q > max) {
+            q = max;
+        }
+        return (byte) q;
+    }
+
+    /** Dequantizes one 8-bit value. */
+    public float dequantize(byte value) {
+        int q = signed ? value : value & 0xFF;
+        return scale * (q - zeroPoint);
+    }
+
+    /**
+     * Quantizes {@code count} native-order floats read from the start of {@code input} into
+     * {@code count} bytes at the start of {@code output}. Buffer positions are left untouched.
+     */
+    public void quantize(ByteBuffer input, ByteBuffer output, int count) {
+        for (int i = 0; i < count; ++i) {
+            output.put(i, quantize(input.getFloat(i * 4)));
+        }
+    }
+
+    /**
+     * Dequantizes {@code rows x columns} bytes from the start of {@code input} into
+     * {@code output[row][column]}.
+     */
+    public void dequantize(ByteBuffer input, float[][] output, int rows, int columns) {
+        for (int row = 0; row < rows; ++row) {
+            for (int column = 0; column < columns; ++column) {
+                output[row][column] = dequantize(input.get(row * columns + column));
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.emotionrecognition.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One RGBA_8888 camera frame in sensor orientation, as handed from the frame source (CameraX on
+ * the device, synthetic frames in tests and benchmarks) to the {@link FrameAnalyzer}. The pixels
+ * are not copied; they must stay valid until the frame has been cropped.
+ */
+public final class RgbaFrame {
+    public final ByteBuffer pixels;
+    /** Bytes between the starts of two rows. */
+    public final int rowStride;
+    public final int width;
+    public final int height;
+    /** Clockwise rotation (0, 90, 180 or 270) that makes the frame upright. */
+    public final int rotationDegrees;
+    /** Whether the upright frame is shown mirrored, as for the front camera. */
+    public final boolean mirrored;
+
+    public RgbaFrame(ByteBuffer pixels, int rowStride, int width, int height,
+                     int rotationDegrees, boolean mirrored) {
+        this.pixels = pixels;
+        this.rowStride = rowStride;
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = rotationDegrees;
+        this.mirrored = mirrored;
+    }
+}
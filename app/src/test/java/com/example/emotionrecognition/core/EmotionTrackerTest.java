@@ -0,0 +1,118 @@
+package com.example.emotionrecognition.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Host-side tests for per-face tracking and score smoothing.
+ */
+public class EmotionTrackerTest {
+
+    private static EmotionTracker newTracker(int reclassifyInterval) {
+        return new EmotionTracker(2, 0.5f, reclassifyInterval, 0.2f, 0.2f, 0.3f, 1);
+    }
+
+    @Test
+    public void steadyFace_isReclassifiedEveryInterval() {
+        EmotionTracker tracker = newTracker(3);
+        boolean[] classified = new boolean[7];
+        for (int frame = 0; frame < classified.length; ++frame) {
+            tracker.beginFrame();
+            classified[frame] = tracker.update(1, 10, 10, 110, 110).needsClassification();
+        }
+
+        assertArrayEquals(new boolean[]{true, false, false, true, false, false, true}, classified);
+        assertEquals(3, tracker.getClassificationsRequested());
+        assertEquals(4, tracker.getClassificationsSkipped());
+    }
+
+    @Test
+    public void movedOrScaledFace_isReclassifiedEarly() {
+        EmotionTracker tracker = newTracker(10);
+        tracker.beginFrame();
+        tracker.update(1, 0, 0, 100, 100);
+
+        tracker.beginFrame();
+        assertFalse(tracker.update(1, 5, 5, 105, 105).needsClassification());
+        tracker.beginFrame();
+        assertTrue(tracker.update(1, 30, 0, 130, 100).needsClassification());
+        tracker.beginFrame();
+        assertTrue(tracker.update(1, 30, 0, 160, 130).needsClassification());
+    }
+
+    @Test
+    public void cancelledRequest_isRequestedAgain() {
+        EmotionTracker tracker = newTracker(3);
+        tracker.beginFrame();
+        EmotionTracker.Track track = tracker.update(1, 10, 10, 110, 110);
+        tracker.cancel(track);
+
+        tracker.beginFrame();
+        assertTrue(tracker.update(1, 10, 10, 110, 110).needsClassification());
+        assertEquals(1, tracker.getClassificationsRequested());
+    }
+
+    @Test
+    public void acceptedRequest_countsFromItsOwnFrame() {
+        EmotionTracker tracker = newTracker(3);
+        tracker.beginFrame();
+        EmotionTracker.Track track = tracker.update(1, 10, 10, 110, 110);
+
+        // scores of frame 0 arrive while frame 1 is being cropped
+        tracker.beginFrame();
+        assertFalse(tracker.update(1, 10, 10, 110, 110).needsClassification());
+        tracker.accept(track, new float[]{1f, 0f});
+        tracker.beginFrame();
+        assertFalse(tracker.update(1, 10, 10, 110, 110).needsClassification());
+        tracker.beginFrame();
+        assertTrue(tracker.update(1, 10, 10, 110, 110).needsClassification());
+    }
+
+    @Test
+    public void scores_areExponentiallySmoothed() {
+        EmotionTracker tracker = newTracker(1);
+        float[] scores = new float[2];
+        tracker.beginFrame();
+        EmotionTracker.Track track = tracker.update(1, 0, 0, 10, 10);
+
+        assertFalse(tracker.getScores(track, scores));
+        tracker.accept(track, new float[]{1f, 0f});
+        tracker.accept(track, new float[]{0f, 1f});
+
+        assertTrue(tracker.getScores(track, scores));
+        assertArrayEquals(new float[]{0.5f, 0.5f}, scores, 1e-6f);
+    }
+
+    @Test
+    public void facesWithoutTrackingId_areMatchedByOverlap() {
+        EmotionTracker tracker = newTracker(3);
+        tracker.beginFrame();
+        EmotionTracker.Track left = tracker.update(null, 0, 0, 100, 100);
+        EmotionTracker.Track right = tracker.update(null, 200, 0, 300, 100);
+
+        tracker.beginFrame();
+        assertSame(right, tracker.update(null, 210, 0, 310, 100));
+        assertSame(left, tracker.update(null, 10, 0, 110, 100));
+        assertNotSame(left, tracker.update(null, 500, 0, 600, 100));
+        assertEquals(3, tracker.getTrackCount());
+    }
+
+    @Test
+    public void lostTracks_areForgotten() {
+        EmotionTracker tracker = newTracker(3);
+        tracker.beginFrame();
+        EmotionTracker.Track track = tracker.update(7, 0, 0, 10, 10);
+
+        // one missed frame is tolerated
+        tracker.beginFrame();
+        tracker.beginFrame();
+        assertSame(track, tracker.update(7, 0, 0, 10, 10));
+
+        tracker.beginFrame();
+        tracker.beginFrame();
+        tracker.beginFrame();
+        assertEquals(0, tracker.getTrackCount());
+        assertNotSame(track, tracker.update(7, 0, 0, 10, 10));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.emotionrecognition.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Host-side tests for the fused preprocessing kernel.
+ */
+public class FacePreprocessorTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    private static int argb(int r, int g, int b) {
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static ByteBuffer output(FacePreprocessor preprocessor) {
+        return ByteBuffer.allocateDirect(preprocessor.getOutputBytes())
+                .order(ByteOrder.nativeOrder());
+    }
+
+    @Test
+    public void uniformImage_isConstantGray() {
+        FacePreprocessor preprocessor = new FacePreprocessor(48);
+        int[] pixels = new int[200 * 150];
+        Arrays.fill(pixels, argb(100, 150, 200));
+        ByteBuffer out = output(preprocessor);
+
+        preprocessor.process(pixels, 0, 200, 200, 150, out);
+
+        float expected = 0.299f * 100 + 0.587f * 150 + 0.114f * 200;
+        for (int i = 0; i < 48 * 48; ++i) {
+            assertEquals(expected, out.getFloat(i * 4), EPSILON);
+        }
+        assertEquals(preprocessor.getOutputBytes(), out.position());
+    }
+
+    @Test
+    public void sameSize_copiesGrayPixelsExactly() {
+        FacePreprocessor preprocessor = new FacePreprocessor(4);
+        int[] pixels = new int[16];
+        for (int i = 0; i < pixels.length; ++i) {
+            pixels[i] = argb(i * 10, i * 5, i);
+        }
+        ByteBuffer out = output(preprocessor);
+
+        preprocessor.process(pixels, 0, 4, 4, 4, out);
+
+        for (int i = 0; i < pixels.length; ++i) {
+            assertEquals(FacePreprocessor.gray(pixels[i]), out.getFloat(i * 4), EPSILON);
+        }
+    }
+
+    @Test
+    public void downscaleByTwo_averagesPixelPairs() {
+        FacePreprocessor preprocessor = new FacePreprocessor(1);
+        int[] pixels = {argb(0, 0, 0), argb(255, 255, 255)};
+        ByteBuffer out = output(preprocessor);
+
+        preprocessor.process(pixels, 0, 2, 2, 1, out);
+
+        assertEquals(127.5f, out.getFloat(0), EPSILON);
+    }
+
+    @Test
+    public void normalization_appliesMeanAndStd() {
+        FacePreprocessor preprocessor = new FacePreprocessor(2, 127.5f, 127.5f);
+        int[] pixels = {argb(0, 0, 0), argb(255, 255, 255),
+                argb(255, 255, 255), argb(0, 0, 0)};
+        ByteBuffer out = output(preprocessor);
+
+        preprocessor.process(pixels, 0, 2, 2, 2, out);
+
+        assertEquals(-1f, out.getFloat(0), EPSILON);
+        assertEquals(1f, out.getFloat(4), EPSILON);
+        assertEquals(1f, out.getFloat(8), EPSILON);
+        assertEquals(-1f, out.getFloat(12), EPSILON);
+    }
+
+    @Test
+    public void regionOfInterest_honoursOffsetAndStride() {
+        FacePreprocessor preprocessor = new FacePreprocessor(2);
+        // 4x3 image, the 2x2 region starting at (1, 1) is white, the rest black
+        int[] pixels = new int[12];
+        Arrays.fill(pixels, argb(0, 0, 0));
+        pixels[5] = pixels[6] = pixels[9] = pixels[10] = argb(255, 255, 255);
+        ByteBuffer out = output(preprocessor);
+
+        preprocessor.process(pixels, 5, 4, 2, 2, out);
+
+        for (int i = 0; i < 4; ++i) {
+            assertEquals(255f, out.getFloat(i * 4), EPSILON);
+        }
+    }
+
+    @Test
+    public void writesAtBufferPosition() {
+        FacePreprocessor preprocessor = new FacePreprocessor(2);
+        int[] pixels = new int[4];
+        Arrays.fill(pixels, argb(255, 255, 255));
+        ByteBuffer out = ByteBuffer.allocateDirect(2 * preprocessor.getOutputBytes())
+                .order(ByteOrder.nativeOrder());
+
+        out.position(preprocessor.getOutputBytes());
+        preprocessor.process(pixels, 0, 2, 2, 2, out);
+
+        assertEquals(0f, out.getFloat(0), EPSILON);
+        assertEquals(255f, out.getFloat(preprocessor.getOutputBytes()), EPSILON);
+        assertEquals(out.capacity(), out.position());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooSmallOutput_isRejected() {
+        FacePreprocessor preprocessor = new FacePreprocessor(48);
+        preprocessor.process(new int[4], 0, 2, 2, 2, ByteBuffer.allocateDirect(16));
+    }
+}
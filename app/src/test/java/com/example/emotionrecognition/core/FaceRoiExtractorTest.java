@@ -0,0 +1,151 @@
+package com.example.emotionrecognition.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Host-side tests for sampling faces out of rotated and mirrored camera frames, checked against
+ * a frame that is rotated pixel by pixel.
+ */
+public class FaceRoiExtractorTest {
+
+    private static final float EPSILON = 1e-3f;
+    // a landscape sensor frame, so sideways rotations swap the upright dimensions
+    private static final int WIDTH = 6;
+    private static final int HEIGHT = 4;
+    private static final int SIZE = 2;
+    // face box in upright coordinates, inside the frame for every rotation
+    // and off centre, so a mirrored frame would hold other pixels there
+    private static final int LEFT = 1;
+    private static final int TOP = 1;
+
+    // gray level of sensor pixel (x, y), distinct for every pixel
+    private static int level(int x, int y) {
+        return 10 * (y * WIDTH + x) + 5;
+    }
+
+    // gray RGBA_8888 sensor frame with a padded row stride
+    private static ByteBuffer sensorFrame(int rowStride) {
+        ByteBuffer frame = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                byte value = (byte) level(x, y);
+                int offset = y * rowStride + x * 4;
+                frame.put(offset, value).put(offset + 1, value).put(offset + 2, value)
+                        .put(offset + 3, (byte) 0xFF);
+            }
+        }
+        return frame;
+    }
+
+    // gray levels of the upright frame as [row][column], i.e. the sensor
+    // frame rotated clockwise
+    private static int[][] uprightLevels(int rotationDegrees) {
+        int[][] levels = new int[HEIGHT][WIDTH];
+        for (int y = 0; y < HEIGHT; ++y) {
+            for (int x = 0; x < WIDTH; ++x) {
+                levels[y][x] = level(x, y);
+            }
+        }
+        for (int turn = 0; turn < rotationDegrees / 90; ++turn) {
+            int rows = levels.length;
+            int columns = levels[0].length;
+            int[][] rotated = new int[columns][rows];
+            for (int row = 0; row < rows; ++row) {
+                for (int column = 0; column < columns; ++column) {
+                    rotated[column][rows - 1 - row] = levels[row][column];
+                }
+            }
+            levels = rotated;
+        }
+        return levels;
+    }
+
+    // a box the size of the output samples exactly one upright pixel per
+    // output pixel, so the sample has to equal the upright frame's ROI,
+    // flipped horizontally if mirrored
+    private static void assertSamplesUprightRoi(int rotationDegrees, boolean mirror) {
+        int rowStride = WIDTH * 4 + 8;
+        FaceRoiExtractor extractor = new FaceRoiExtractor(SIZE);
+        extractor.setFrame(sensorFrame(rowStride), rowStride, WIDTH, HEIGHT,
+                rotationDegrees, mirror);
+        ByteBuffer output = ByteBuffer.allocateDirect(SIZE * SIZE * 4)
+                .order(ByteOrder.nativeOrder());
+
+        assertTrue(extractor.extract(LEFT, TOP, SIZE, SIZE, output));
+
+        int[][] upright = uprightLevels(rotationDegrees);
+        for (int j = 0; j < SIZE; ++j) {
+            for (int i = 0; i < SIZE; ++i) {
+                int column = LEFT + (mirror ? SIZE - 1 - i : i);
+                assertEquals("pixel (" + i + ", " + j + ")", upright[TOP + j][column],
+                        output.getFloat((j * SIZE + i) * 4), EPSILON);
+            }
+        }
+        assertEquals(SIZE * SIZE * 4, output.position());
+    }
+
+    @Test
+    public void rotation0_samplesUprightRoi() {
+        assertSamplesUprightRoi(0, false);
+    }
+
+    @Test
+    public void rotation0Mirrored_samplesUprightRoi() {
+        assertSamplesUprightRoi(0, true);
+    }
+
+    @Test
+    public void rotation90_samplesUprightRoi() {
+        assertSamplesUprightRoi(90, false);
+    }
+
+    @Test
+    public void rotation90Mirrored_samplesUprightRoi() {
+        assertSamplesUprightRoi(90, true);
+    }
+
+    @Test
+    public void rotation180_samplesUprightRoi() {
+        assertSamplesUprightRoi(180, false);
+    }
+
+    @Test
+    public void rotation180Mirrored_samplesUprightRoi() {
+        assertSamplesUprightRoi(180, true);
+    }
+
+    @Test
+    public void rotation270_samplesUprightRoi() {
+        assertSamplesUprightRoi(270, false);
+    }
+
+    @Test
+    public void rotation270Mirrored_samplesUprightRoi() {
+        assertSamplesUprightRoi(270, true);
+    }
+
+    @Test
+    public void sidewaysRotation_boundsBoxesByUprightSize() {
+        FaceRoiExtractor extractor = new FaceRoiExtractor(SIZE);
+        ByteBuffer output = ByteBuffer.allocateDirect(SIZE * SIZE * 4)
+                .order(ByteOrder.nativeOrder());
+
+        extractor.setFrame(sensorFrame(WIDTH * 4), WIDTH * 4, WIDTH, HEIGHT, 90, false);
+
+        // the upright frame is HEIGHT pixels wide and WIDTH pixels tall
+        assertFalse(extractor.extract(HEIGHT, 0, SIZE, SIZE, output));
+        assertTrue(extractor.extract(0, HEIGHT, SIZE, SIZE, output));
+        assertEquals(SIZE * SIZE * 4, output.position());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedRotation_throws() {
+        new FaceRoiExtractor(SIZE).setFrame(sensorFrame(WIDTH * 4), WIDTH * 4, WIDTH, HEIGHT,
+                45, false);
+    }
+}
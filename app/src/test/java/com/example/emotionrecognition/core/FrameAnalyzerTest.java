@@ -0,0 +1,153 @@
+package com.example.emotionrecognition.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Host-side tests for the detect/crop/classify core, driven by synthetic frames, a stub detector
+ * and a stub classifier.
+ */
+public class FrameAnalyzerTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int SIZE = 8;
+    private static final List<String> LABELS = Arrays.asList("Dark", "Bright");
+
+    private static final DetectedFace BRIGHT_FACE = new DetectedFace(1, 40, 40, 140, 140);
+    private static final DetectedFace DARK_FACE = new DetectedFace(2, 300, 200, 400, 300);
+
+    // a black frame with a white square where the bright face is
+    private static RgbaFrame syntheticFrame() {
+        ByteBuffer pixels = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4);
+        for (int y = BRIGHT_FACE.top; y < BRIGHT_FACE.bottom; ++y) {
+            for (int x = BRIGHT_FACE.left; x < BRIGHT_FACE.right; ++x) {
+                pixels.putInt((y * WIDTH + x) * 4, 0xFFFFFFFF);
+            }
+        }
+        return new RgbaFrame(pixels, WIDTH * 4, WIDTH, HEIGHT, 0, false);
+    }
+
+    private static FrameAnalyzer newAnalyzer(FaceDetector detector, FaceClassifier classifier) {
+        EmotionTracker tracker = new EmotionTracker(LABELS.size(), 1f, 3, 0.2f, 0.2f, 0.3f, 1);
+        return new FrameAnalyzer(detector, classifier, tracker, LABELS, SIZE);
+    }
+
+    @Test
+    public void everyFace_getsItsOwnLabel() throws Exception {
+        StubClassifier classifier = new StubClassifier();
+        FrameAnalyzer analyzer = newAnalyzer(
+                frame -> Arrays.asList(BRIGHT_FACE, DARK_FACE), classifier);
+
+        FrameResult result = analyzer.analyze(syntheticFrame());
+
+        assertEquals(2, result.faces.size());
+        assertEquals("Bright: 100%", result.faces.get(0).label);
+        assertEquals("Dark: 100%", result.faces.get(1).label);
+        assertEquals(BRIGHT_FACE.left, result.faces.get(0).left);
+        assertEquals(DARK_FACE.bottom, result.faces.get(1).bottom);
+        assertNotEquals(result.faces.get(0).trackId, result.faces.get(1).trackId);
+        assertEquals(1, classifier.calls);
+        assertEquals(2, classifier.faces);
+    }
+
+    @Test
+    public void steadyFaces_reuseTheirScoresBetweenClassifications() throws Exception {
+        StubClassifier classifier = new StubClassifier();
+        FrameAnalyzer analyzer = newAnalyzer(
+                frame -> Collections.singletonList(BRIGHT_FACE), classifier);
+        RgbaFrame frame = syntheticFrame();
+
+        for (int i = 0; i < 6; ++i) {
+            FrameResult result = analyzer.analyze(frame);
+            assertEquals("Bright: 100%", result.faces.get(0).label);
+        }
+
+        assertEquals(2, classifier.faces);
+        assertEquals(4, analyzer.getTracker().getClassificationsSkipped());
+    }
+
+    @Test
+    public void frameWithoutFaces_skipsTheClassifier() throws Exception {
+        StubClassifier classifier = new StubClassifier();
+        FrameAnalyzer analyzer = newAnalyzer(frame -> Collections.emptyList(), classifier);
+
+        assertTrue(analyzer.analyze(syntheticFrame()).faces.isEmpty());
+        assertEquals(0, classifier.calls);
+    }
+
+    @Test
+    public void withoutClassifier_facesAreReportedUnclassified() throws Exception {
+        FrameAnalyzer analyzer = newAnalyzer(
+                frame -> Collections.singletonList(DARK_FACE), null);
+
+        FrameResult.FaceResult face = analyzer.analyze(syntheticFrame()).faces.get(0);
+
+        assertFalse(face.isClassified());
+        assertNull(face.label);
+    }
+
+    @Test
+    public void faceOutsideTheFrame_isNotCropped() throws Exception {
+        StubClassifier classifier = new StubClassifier();
+        FrameAnalyzer analyzer = newAnalyzer(frame -> Collections.singletonList(
+                new DetectedFace(null, WIDTH + 10, 0, WIDTH + 60, 50)), classifier);
+
+        assertEquals(1, analyzer.analyze(syntheticFrame()).faces.size());
+        assertEquals(0, classifier.faces);
+    }
+
+    @Test
+    public void abandonedBatch_isClassifiedWithTheNextFrame() throws Exception {
+        StubClassifier classifier = new StubClassifier();
+        FrameAnalyzer analyzer = newAnalyzer(
+                frame -> Collections.singletonList(BRIGHT_FACE), classifier);
+        RgbaFrame frame = syntheticFrame();
+        ByteBuffer input = analyzer.allocateInputBuffer(1);
+
+        // the pipeline dropped the frame between crop and classify
+        analyzer.abandon(analyzer.crop(frame, analyzer.detect(frame), input));
+        FrameResult result = analyzer.analyze(frame);
+
+        assertEquals(1, classifier.faces);
+        assertEquals("Bright: 100%", result.faces.get(0).label);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void detectorFailure_propagates() throws Exception {
+        FrameAnalyzer analyzer = newAnalyzer(frame -> {
+            throw new IllegalStateException("detector closed");
+        }, new StubClassifier());
+
+        analyzer.analyze(syntheticFrame());
+    }
+
+    // scores "Bright" when the mean input value is above mid gray, "Dark" otherwise
+    private static final class StubClassifier implements FaceClassifier {
+        int calls;
+        int faces;
+
+        @Override
+        public float[][] classifyBatch(ByteBuffer input, int count) {
+            calls++;
+            faces += count;
+            ByteBuffer floats = input.duplicate().order(ByteOrder.nativeOrder());
+            float[][] scores = new float[count][];
+            for (int face = 0; face < count; ++face) {
+                float sum = 0f;
+                for (int i = 0; i < SIZE * SIZE; ++i) {
+                    sum += floats.getFloat((face * SIZE * SIZE + i) * 4);
+                }
+                boolean bright = sum / (SIZE * SIZE) > 127.5f;
+                scores[face] = bright ? new float[]{0f, 1f} : new float[]{1f, 0f};
+            }
+            return scores;
+        }
+    }
+}
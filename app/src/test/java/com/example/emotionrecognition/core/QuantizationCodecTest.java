@@ -0,0 +1,68 @@
+package com.example.emotionrecognition.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Host-side tests for uint8/int8 tensor quantization.
+ */
+public class QuantizationCodecTest {
+
+    @Test
+    public void uint8_roundTripsGrayInput() {
+        // typical input parameters for a model fed 0..255 gray values
+        QuantizationCodec codec = new QuantizationCodec(1f, 0, false);
+
+        assertEquals(0, codec.quantize(0f) & 0xFF);
+        assertEquals(128, codec.quantize(127.6f) & 0xFF);
+        assertEquals(255, codec.quantize(255f) & 0xFF);
+        assertEquals(255f, codec.dequantize((byte) 255), 0f);
+    }
+
+    @Test
+    public void uint8_saturates() {
+        QuantizationCodec codec = new QuantizationCodec(1f / 256, 0, false);
+
+        assertEquals(0, codec.quantize(-1f) & 0xFF);
+        assertEquals(255, codec.quantize(2f) & 0xFF);
+    }
+
+    @Test
+    public void int8_usesZeroPointAndSign() {
+        // softmax output of a fully quantized model
+        QuantizationCodec codec = new QuantizationCodec(1f / 256, -128, true);
+
+        assertEquals(-128, codec.quantize(0f));
+        assertEquals(127, codec.quantize(1f));
+        assertEquals(0f, codec.dequantize((byte) -128), 0f);
+        assertEquals(0.5f, codec.dequantize((byte) 0), 1e-6f);
+    }
+
+    @Test
+    public void buffers_areConvertedWithoutMovingPositions() {
+        QuantizationCodec codec = new QuantizationCodec(0.5f, 10, false);
+        ByteBuffer floats = ByteBuffer.allocateDirect(3 * 4).order(ByteOrder.nativeOrder());
+        floats.putFloat(0, 0f).putFloat(4, 1f).putFloat(8, -5f);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(3);
+
+        codec.quantize(floats, bytes, 3);
+
+        assertEquals(10, bytes.get(0));
+        assertEquals(12, bytes.get(1));
+        assertEquals(0, bytes.get(2));
+        assertEquals(0, bytes.position());
+
+        float[][] decoded = new float[1][3];
+        codec.dequantize(bytes, decoded, 1, 3);
+        assertArrayEquals(new float[]{0f, 1f, -5f}, decoded[0], 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroScale_isRejected() {
+        new QuantizationCodec(0f, 0, false);
+    }
+}
@@ -0,0 +1,136 @@
+package org.opencv.android;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Host-side tests for the face atlas layout and its CPU reference rendering.
+ */
+public class FaceAtlasTest {
+
+    private static ByteBuffer frame(int width, int height) {
+        ByteBuffer frame = ByteBuffer.allocate(width * height * 4);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                frame.put((byte) x).put((byte) y).put((byte) (x + y)).put((byte) 255);
+            }
+        }
+        return frame;
+    }
+
+    private static byte expectedGray(int x, int y) {
+        return FaceAtlas.gray((byte) x, (byte) y, (byte) (x + y));
+    }
+
+    @Test
+    public void grid_isAsSquareAsPossible() {
+        FaceAtlas atlas = new FaceAtlas(48, 5);
+
+        assertEquals(3, atlas.getColumns());
+        assertEquals(2, atlas.getRows());
+        assertEquals(144, atlas.getWidth());
+        assertEquals(96, atlas.getHeight());
+        assertEquals(36, atlas.getTextureWidth());
+    }
+
+    @Test
+    public void cells_areFilledRowByRow() {
+        FaceAtlas atlas = new FaceAtlas(48, 5);
+
+        assertEquals(0, atlas.offset(0));
+        assertEquals(96, atlas.cellLeft(2));
+        assertEquals(0, atlas.cellTop(2));
+        assertEquals(0, atlas.cellLeft(3));
+        assertEquals(48, atlas.cellTop(3));
+        assertEquals(48 * 144 + 48, atlas.offset(4));
+    }
+
+    @Test
+    public void usedHeight_coversOnlyRowsWithFaces() {
+        FaceAtlas atlas = new FaceAtlas(48, 5);
+
+        assertEquals(0, atlas.usedHeight(0));
+        assertEquals(48, atlas.usedHeight(3));
+        assertEquals(96, atlas.usedHeight(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void faceSize_mustPackIntoTexels() {
+        new FaceAtlas(50, 1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void cell_outsideCapacity_throws() {
+        new FaceAtlas(48, 4).offset(4);
+    }
+
+    @Test
+    public void texCoords_flipTheFrameVertically() {
+        float[] coords = new float[8];
+
+        FaceAtlas.texCoords(160, 120, 320, 240, 640, 480, coords, 0);
+
+        assertArrayEquals(new float[]{
+                0.25f, 0.75f,
+                0.25f, 0.25f,
+                0.75f, 0.75f,
+                0.75f, 0.25f}, coords, 1e-6f);
+    }
+
+    @Test
+    public void render_sameSize_copiesGrayPixels() {
+        FaceAtlas atlas = new FaceAtlas(4, 2);
+        ByteBuffer out = ByteBuffer.allocate(atlas.getWidth() * atlas.getHeight());
+
+        atlas.render(frame(16, 16), 16 * 4, 16, 16, 2, new int[]{2, 3, 4, 4, 8, 9, 4, 4}, out);
+
+        for (int y = 0; y < 4; ++y) {
+            for (int x = 0; x < 4; ++x) {
+                assertEquals(expectedGray(2 + x, 3 + y), out.get(atlas.offset(0) + y * atlas.getWidth() + x));
+                assertEquals(expectedGray(8 + x, 9 + y), out.get(atlas.offset(1) + y * atlas.getWidth() + x));
+            }
+        }
+    }
+
+    @Test
+    public void render_downscale_takesPixelNearestToCenter() {
+        FaceAtlas atlas = new FaceAtlas(4, 1);
+        ByteBuffer out = ByteBuffer.allocate(atlas.getWidth() * atlas.getHeight());
+
+        atlas.render(frame(16, 16), 16 * 4, 16, 16, 1, new int[]{0, 0, 8, 8}, out);
+
+        for (int y = 0; y < 4; ++y) {
+            for (int x = 0; x < 4; ++x) {
+                assertEquals(expectedGray(2 * x + 1, 2 * y + 1), out.get(y * atlas.getWidth() + x));
+            }
+        }
+    }
+
+    @Test
+    public void render_boxOutsideFrame_clampsToEdge() {
+        FaceAtlas atlas = new FaceAtlas(4, 1);
+        ByteBuffer out = ByteBuffer.allocate(atlas.getWidth() * atlas.getHeight());
+
+        atlas.render(frame(8, 8), 8 * 4, 8, 8, 1, new int[]{-4, 6, 4, 4}, out);
+
+        assertEquals(expectedGray(0, 6), out.get(0));
+        assertEquals(expectedGray(0, 7), out.get(3 * atlas.getWidth() + 3));
+    }
+
+    @Test
+    public void render_leavesUnusedCellsUntouched() {
+        FaceAtlas atlas = new FaceAtlas(4, 2);
+        ByteBuffer out = ByteBuffer.allocate(atlas.getWidth() * atlas.getHeight());
+
+        atlas.render(frame(8, 8), 8 * 4, 8, 8, 1, new int[]{0, 0, 4, 4}, out);
+
+        for (int y = 0; y < 4; ++y) {
+            for (int x = 0; x < 4; ++x) {
+                assertEquals(0, out.get(atlas.offset(1) + y * atlas.getWidth() + x));
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.emotionrecognition.benchmark;
+
+import com.example.emotionrecognition.core.FacePreprocessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the fused {@link FacePreprocessor} kernel with the multi-pass path ClassifyEmotion used
+ * before it. The old path ran on Android Bitmaps and TFLite support classes, so it is modelled
+ * here with the same passes and allocations: scale into a new 48x48 pixel array, expand it into a
+ * new float RGB array (TensorImage.load), reduce that to a new grayscale array (the grayscale
+ * ImageProcessor) and copy the result into a new tensor buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FacePreprocessorBenchmark {
+
+    private static final int SIZE = 48;
+
+    // typical face sizes in a 480x640 frame
+    @Param({"96", "200", "400"})
+    public int faceSize;
+
+    private int[] pixels;
+    private FacePreprocessor preprocessor;
+    private ByteBuffer output;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        pixels = new int[faceSize * faceSize];
+        for (int i = 0; i < pixels.length; ++i) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        preprocessor = new FacePreprocessor(SIZE);
+        output = ByteBuffer.allocateDirect(preprocessor.getOutputBytes())
+                .order(ByteOrder.nativeOrder());
+    }
+
+    @Benchmark
+    public ByteBuffer fused() {
+        output.clear();
+        preprocessor.process(pixels, 0, faceSize, faceSize, faceSize, output);
+        return output;
+    }
+
+    @Benchmark
+    public ByteBuffer multiPass() {
+        // Bitmap.createScaledBitmap(face, 48, 48, true)
+        int[] scaled = new int[SIZE * SIZE];
+        float scale = (float) faceSize / SIZE;
+        for (int j = 0; j < SIZE; ++j) {
+            float y = Math.max(0f, Math.min((j + 0.5f) * scale - 0.5f, faceSize - 1));
+            int y1 = (int) y;
+            int y2 = Math.min(y1 + 1, faceSize - 1);
+            float fy = y - y1;
+            for (int i = 0; i < SIZE; ++i) {
+                float x = Math.max(0f, Math.min((i + 0.5f) * scale - 0.5f, faceSize - 1));
+                int x1 = (int) x;
+                int x2 = Math.min(x1 + 1, faceSize - 1);
+                float fx = x - x1;
+                scaled[j * SIZE + i] = lerpArgb(
+                        lerpArgb(pixels[y1 * faceSize + x1], pixels[y1 * faceSize + x2], fx),
+                        lerpArgb(pixels[y2 * faceSize + x1], pixels[y2 * faceSize + x2], fx),
+                        fy);
+            }
+        }
+
+        // TensorImage.load(scaledBitmap) into a FLOAT32 RGB tensor
+        float[] rgb = new float[SIZE * SIZE * 3];
+        for (int i = 0; i < scaled.length; ++i) {
+            rgb[i * 3] = (scaled[i] >> 16) & 0xFF;
+            rgb[i * 3 + 1] = (scaled[i] >> 8) & 0xFF;
+            rgb[i * 3 + 2] = scaled[i] & 0xFF;
+        }
+
+        // ImageProcessor with TransformToGrayscaleOp
+        float[] gray = new float[SIZE * SIZE];
+        for (int i = 0; i < gray.length; ++i) {
+            gray[i] = 0.299f * rgb[i * 3] + 0.587f * rgb[i * 3 + 1] + 0.114f * rgb[i * 3 + 2];
+        }
+
+        // TensorImage.getBuffer()
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SIZE * SIZE * 4)
+                .order(ByteOrder.nativeOrder());
+        buffer.asFloatBuffer().put(gray);
+        return buffer;
+    }
+
+    private static int lerpArgb(int a, int b, float t) {
+        int r = (int) (((a >> 16) & 0xFF) + ((((b >> 16) & 0xFF) - ((a >> 16) & 0xFF)) * t));
+        int g = (int) (((a >> 8) & 0xFF) + ((((b >> 8) & 0xFF) - ((a >> 8) & 0xFF)) * t));
+        int bl = (int) ((a & 0xFF) + (((b & 0xFF) - (a & 0xFF)) * t));
+        return 0xFF000000 | (r << 16) | (g << 8) | bl;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.emotionrecognition.benchmark;
+
+import com.example.emotionrecognition.core.DetectedFace;
+import com.example.emotionrecognition.core.EmotionTracker;
+import com.example.emotionrecognition.core.FaceClassifier;
+import com.example.emotionrecognition.core.FaceDetector;
+import com.example.emotionrecognition.core.FrameAnalyzer;
+import com.example.emotionrecognition.core.FrameResult;
+import com.example.emotionrecognition.core.RgbaFrame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames per second of each step of the {@link FrameAnalyzer} on a synthetic 640x480 frame, with
+ * a stub detector reporting fixed faces and a stub classifier returning fixed scores, so only the
+ * pipeline's own work is measured. Run with the gc profiler (the module default) to get the
+ * allocation rate per frame next to it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FrameAnalyzerBenchmark {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int SIZE = 48;
+    private static final List<String> LABELS = Arrays.asList("Angry", "Disgusted", "Afraid",
+            "Happy", "Sad", "Surprised", "Neutral");
+
+    @Param({"1", "4"})
+    public int faces;
+
+    // 1 classifies every face on every frame, 3 is what the app uses
+    @Param({"1", "3"})
+    public int reclassifyInterval;
+
+    private RgbaFrame frame;
+    private List<DetectedFace> detected;
+    private FrameAnalyzer analyzer;
+    private ByteBuffer input;
+    private FrameAnalyzer.Batch batch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ByteBuffer pixels = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4);
+        while (pixels.hasRemaining()) {
+            pixels.putInt(random.nextInt());
+        }
+        frame = new RgbaFrame(pixels, WIDTH * 4, WIDTH, HEIGHT, 270, true);
+
+        detected = new ArrayList<>();
+        for (int i = 0; i < faces; ++i) {
+            int left = 20 + i * 110;
+            detected.add(new DetectedFace(i, left, 100, left + 100, 220));
+        }
+        FaceDetector detector = frame -> detected;
+
+        float[][] scores = new float[faces][LABELS.size()];
+        for (float[] face : scores) {
+            face[3] = 1f;
+        }
+        FaceClassifier classifier = (input, count) -> scores;
+
+        EmotionTracker tracker = new EmotionTracker(LABELS.size(), 0.5f, reclassifyInterval,
+                0.2f, 0.2f, 0.3f, 5);
+        analyzer = new FrameAnalyzer(detector, classifier, tracker, LABELS, SIZE);
+        input = analyzer.allocateInputBuffer(faces);
+        batch = analyzer.crop(frame, detected, input);
+    }
+
+    @Benchmark
+    public FrameAnalyzer.Batch crop() {
+        input.clear();
+        return analyzer.crop(frame, detected, input);
+    }
+
+    @Benchmark
+    public FrameResult classify() {
+        return analyzer.classify(batch);
+    }
+
+    @Benchmark
+    public FrameResult analyze() throws Exception {
+        return analyzer.analyze(frame);
+    }
+}
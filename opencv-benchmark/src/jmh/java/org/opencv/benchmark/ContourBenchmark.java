@@ -0,0 +1,126 @@
+package org.opencv.benchmark;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.utils.Converters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting point sets between OpenCV Mats and Java objects, sized like a face contour (36
+ * points) and a full face mesh (468 points).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContourBenchmark {
+
+    @Param({"36", "468"})
+    public int points;
+
+    private Point[] array;
+    private List<Point> list;
+    private List<Float> floats;
+    private MatOfPoint matOfPoint;
+    private MatOfPoint2f matOfPoint2f;
+    private List<Point> out;
+    private Point[] pool;
+    private float[] buffer;
+
+    @Setup
+    public void setUp() {
+        NativeLibrary.load();
+        array = new Point[points];
+        floats = new ArrayList<>(points * 2);
+        for (int i = 0; i < points; ++i) {
+            double angle = 2 * Math.PI * i / points;
+            array[i] = new Point(320 + 100 * Math.cos(angle), 240 + 130 * Math.sin(angle));
+            floats.add((float) array[i].x);
+            floats.add((float) array[i].y);
+        }
+        list = Arrays.asList(array);
+        matOfPoint = new MatOfPoint(array);
+        matOfPoint2f = new MatOfPoint2f(array);
+        out = new ArrayList<>(points);
+        pool = new Point[points];
+        buffer = new float[points * 2];
+    }
+
+    @TearDown
+    public void tearDown() {
+        matOfPoint.release();
+        matOfPoint2f.release();
+    }
+
+    @Benchmark
+    public Point[] matOfPointToArray() {
+        return matOfPoint.toArray();
+    }
+
+    @Benchmark
+    public Point[] matOfPoint2fToArray() {
+        return matOfPoint2f.toArray();
+    }
+
+    @Benchmark
+    public Point[] matOfPoint2fToPool() {
+        matOfPoint2f.toArray(pool);
+        return pool;
+    }
+
+    @Benchmark
+    public float[] matOfPoint2fToBuffer() {
+        matOfPoint2f.toArray(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public MatOfPoint2f matOfPoint2fFromArray() {
+        matOfPoint2f.fromArray(array);
+        return matOfPoint2f;
+    }
+
+    @Benchmark
+    public int vectorPointToMat() {
+        Mat converted = Converters.vector_Point_to_Mat(list);
+        int rows = converted.rows();
+        converted.release();
+        return rows;
+    }
+
+    @Benchmark
+    public int vectorPoint2fToMat() {
+        Mat converted = Converters.vector_Point2f_to_Mat(list);
+        int rows = converted.rows();
+        converted.release();
+        return rows;
+    }
+
+    @Benchmark
+    public List<Point> matToVectorPoint() {
+        Converters.Mat_to_vector_Point(matOfPoint, out);
+        return out;
+    }
+
+    @Benchmark
+    public int vectorFloatToMat() {
+        Mat converted = Converters.vector_float_to_Mat(floats);
+        int rows = converted.rows();
+        converted.release();
+        return rows;
+    }
+}
@@ -0,0 +1,105 @@
+package org.opencv.benchmark;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.utils.Converters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Float vectors through {@link Converters}: the boxing {@code List<Float>} conversions against the
+ * primitive array and direct buffer ones. 936 floats is a 468 point face mesh, 307200 a 640x480
+ * single channel float image. Run with {@code -prof gc} to see the allocation difference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConvertersBenchmark {
+
+    @Param({"936", "307200"})
+    public int floats;
+
+    private List<Float> list;
+    private float[] array;
+    private ByteBuffer buffer;
+    private Mat mat;
+
+    private List<Float> outList;
+    private float[] outArray;
+    private ByteBuffer outBuffer;
+
+    @Setup
+    public void setUp() {
+        NativeLibrary.load();
+        list = new ArrayList<>(floats);
+        array = new float[floats];
+        buffer = ByteBuffer.allocateDirect(floats * 4).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < floats; ++i) {
+            array[i] = (i % 640) * 0.5f;
+            list.add(array[i]);
+            buffer.putFloat(array[i]);
+        }
+        buffer.flip();
+        mat = Converters.vector_float_to_Mat(array);
+
+        outList = new ArrayList<>(floats);
+        outArray = new float[floats];
+        outBuffer = ByteBuffer.allocateDirect(floats * 4).order(ByteOrder.nativeOrder());
+    }
+
+    @TearDown
+    public void tearDown() {
+        mat.close();
+    }
+
+    @Benchmark
+    public int listToMat() {
+        try (Mat converted = Converters.vector_float_to_Mat(list)) {
+            return converted.rows();
+        }
+    }
+
+    @Benchmark
+    public int arrayToMat() {
+        try (Mat converted = Converters.vector_float_to_Mat(array)) {
+            return converted.rows();
+        }
+    }
+
+    @Benchmark
+    public int bufferToMat() {
+        try (Mat converted = Converters.buffer_to_Mat(buffer, CvType.CV_32FC1)) {
+            return converted.rows();
+        }
+    }
+
+    @Benchmark
+    public List<Float> matToList() {
+        Converters.Mat_to_vector_float(mat, outList);
+        return outList;
+    }
+
+    @Benchmark
+    public int matToArray() {
+        return Converters.Mat_to_vector_float(mat, outArray);
+    }
+
+    @Benchmark
+    public int matToBuffer() {
+        outBuffer.clear();
+        return Converters.Mat_to_buffer(mat, outBuffer);
+    }
+}
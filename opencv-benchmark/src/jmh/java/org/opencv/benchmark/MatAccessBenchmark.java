@@ -0,0 +1,110 @@
+package org.opencv.benchmark;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Mat#get} and {@link Mat#put} on a 640x480 camera frame: the whole frame in one call,
+ * into a Java array or a direct buffer, row by row, and element by element over a 48x48 face
+ * region.
+ * <p>
+ * {@code Utils.bitmapToMat} needs {@code android.graphics.Bitmap} and cannot run here. Natively it
+ * allocates the Mat and copies the locked RGBA pixels into it, which is what {@link #putFrame}
+ * measures with {@code channels = 4}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MatAccessBenchmark {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int FACE = 48;
+
+    // 1 for gray frames, 4 for RGBA frames
+    @Param({"1", "4"})
+    public int channels;
+
+    private Mat frame;
+    private byte[] pixels;
+    private byte[] row;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        NativeLibrary.load();
+        frame = new Mat(HEIGHT, WIDTH, CvType.CV_8UC(channels));
+        pixels = new byte[WIDTH * HEIGHT * channels];
+        new Random(42).nextBytes(pixels);
+        frame.put(0, 0, pixels);
+        row = new byte[WIDTH * channels];
+        buffer = ByteBuffer.allocateDirect(pixels.length);
+        buffer.put(pixels);
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+    }
+
+    @Benchmark
+    public byte[] getFrame() {
+        frame.get(0, 0, pixels);
+        return pixels;
+    }
+
+    @Benchmark
+    public Mat putFrame() {
+        frame.create(HEIGHT, WIDTH, CvType.CV_8UC(channels));
+        frame.put(0, 0, pixels);
+        return frame;
+    }
+
+    @Benchmark
+    public ByteBuffer getFrameBuffer() {
+        buffer.clear();
+        frame.get(0, 0, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public Mat putFrameBuffer() {
+        frame.create(HEIGHT, WIDTH, CvType.CV_8UC(channels));
+        buffer.clear();
+        frame.put(0, 0, buffer);
+        return frame;
+    }
+
+    @Benchmark
+    public byte[] getRows() {
+        for (int y = 0; y < HEIGHT; ++y) {
+            frame.get(y, 0, row);
+        }
+        return row;
+    }
+
+    @Benchmark
+    public double getFaceElements() {
+        // one JNI call and one boxed double[] per element
+        double sum = 0;
+        for (int y = 0; y < FACE; ++y) {
+            for (int x = 0; x < FACE; ++x) {
+                sum += frame.get(y, x)[0];
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,107 @@
+package org.opencv.benchmark;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Rect;
+import org.opencv.utils.Converters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moving detection results between {@link MatOfRect} and Java objects, for as many rectangles as a
+ * face or object detector typically reports per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MatOfRectBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int rects;
+
+    private Rect[] array;
+    private List<Rect> list;
+    private MatOfRect mat;
+    private List<Rect> out;
+    private Rect[] pool;
+    private int[] buffer;
+
+    @Setup
+    public void setUp() {
+        NativeLibrary.load();
+        array = new Rect[rects];
+        for (int i = 0; i < rects; ++i) {
+            array[i] = new Rect(i * 12 % 600, i * 9 % 440, 40 + i, 40 + i);
+        }
+        list = Arrays.asList(array);
+        mat = new MatOfRect(array);
+        out = new ArrayList<>(rects);
+        pool = new Rect[rects];
+        buffer = new int[rects * 4];
+    }
+
+    @TearDown
+    public void tearDown() {
+        mat.release();
+    }
+
+    @Benchmark
+    public Rect[] toArray() {
+        return mat.toArray();
+    }
+
+    @Benchmark
+    public Rect[] toPool() {
+        mat.toArray(pool);
+        return pool;
+    }
+
+    @Benchmark
+    public int[] toBuffer() {
+        mat.toArray(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public List<Rect> toList() {
+        return mat.toList();
+    }
+
+    @Benchmark
+    public MatOfRect fromArray() {
+        mat.fromArray(array);
+        return mat;
+    }
+
+    @Benchmark
+    public MatOfRect fromPool() {
+        mat.fromArray(array, rects);
+        return mat;
+    }
+
+    @Benchmark
+    public int vectorRectToMat() {
+        Mat converted = Converters.vector_Rect_to_Mat(list);
+        int rows = converted.rows();
+        converted.release();
+        return rows;
+    }
+
+    @Benchmark
+    public List<Rect> matToVectorRect() {
+        Converters.Mat_to_vector_Rect(mat, out);
+        return out;
+    }
+}
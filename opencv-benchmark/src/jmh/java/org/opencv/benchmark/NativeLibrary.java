@@ -0,0 +1,28 @@
+package org.opencv.benchmark;
+
+import org.opencv.core.Core;
+
+/**
+ * Loads the desktop OpenCV Java library once per benchmark JVM. The {@code opencv.library}
+ * system property selects a library file explicitly; otherwise
+ * {@link Core#NATIVE_LIBRARY_NAME} is looked up on {@code java.library.path}.
+ */
+final class NativeLibrary {
+    private static boolean loaded;
+
+    private NativeLibrary() {
+    }
+
+    static synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        String library = System.getProperty("opencv.library");
+        if (library != null) {
+            System.load(library);
+        } else {
+            System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        }
+        loaded = true;
+    }
+}
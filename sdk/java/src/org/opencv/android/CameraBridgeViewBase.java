@@ -15,6 +15,8 @@ import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Rect;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.SurfaceHolder;
@@ -35,7 +37,24 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     private static final int STARTED = 1;
 
     private int mState = STOPPED;
-    private Bitmap mCacheBitmap;
+    // frames are converted into one cache bitmap while the render thread
+    // draws the other; a bitmap is busy from conversion until it is posted
+    private final Bitmap[] mCacheBitmaps = new Bitmap[2];
+    private final boolean[] mCacheBitmapBusy = new boolean[2];
+    private int mNextCacheBitmap;
+    private final Object mRenderLock = new Object();
+    private HandlerThread mRenderThread;
+    private volatile Handler mRenderHandler;
+    // drawBitmap() rectangles, recomputed only when the canvas size, the
+    // bitmap size or mScale change; used on the render thread
+    private final Rect mSrcRect = new Rect();
+    private final Rect mDstRect = new Rect();
+    private int mRectCanvasWidth = -1;
+    private int mRectCanvasHeight = -1;
+    private float mRectScale;
+    private volatile long mLastFrameLatencyNanos;
+    private long mFrameLatencySumNanos;
+    private long mFrameLatencyCount;
     private CvCameraViewListener2 mListener;
     private boolean mSurfaceExist;
     private final Object mSyncObject = new Object();
@@ -356,6 +375,7 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     // Bitmap must be constructed before surface
     private void onEnterStartedState() {
         Log.d(TAG, "call onEnterStartedState");
+        startRenderThread();
         /* Connect camera */
         if (!connectCamera(getWidth(), getHeight())) {
             AlertDialog ad = new AlertDialog.Builder(getContext()).create();
@@ -374,9 +394,37 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
 
     private void onExitStartedState() {
         disconnectCamera();
-        if (mCacheBitmap != null) {
-            mCacheBitmap.recycle();
+        stopRenderThread();
+        synchronized (mRenderLock) {
+            for (int i = 0; i < mCacheBitmaps.length; i++) {
+                if (mCacheBitmaps[i] != null) {
+                    mCacheBitmaps[i].recycle();
+                    mCacheBitmaps[i] = null;
+                }
+            }
+        }
+    }
+
+    private void startRenderThread() {
+        stopRenderThread();
+        mRenderThread = new HandlerThread("OpenCVCameraRender");
+        mRenderThread.start();
+        mRenderHandler = new Handler(mRenderThread.getLooper());
+    }
+
+    // lets the frames already handed to the render thread be posted, so
+    // that no cache bitmap is left busy
+    private void stopRenderThread() {
+        if (mRenderThread == null)
+            return;
+        mRenderThread.quitSafely();
+        try {
+            mRenderThread.join();
+        } catch (InterruptedException e) {
+            Log.e(TAG, "stopRenderThread", e);
         }
+        mRenderThread = null;
+        mRenderHandler = null;
     }
 
     /**
@@ -386,6 +434,7 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
      * @param frame - the current frame to be delivered
      */
     protected void deliverAndDrawFrame(CvCameraViewFrame frame) {
+        final long deliveredNanos = System.nanoTime();
         Mat modified;
 
         if (mListener != null) {
@@ -394,45 +443,133 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
             modified = frame.rgba();
         }
 
-        boolean bmpValid = true;
-        if (modified != null) {
-            try {
-                Utils.matToBitmap(modified, mCacheBitmap);
-            } catch(Exception e) {
-                Log.e(TAG, "Mat type: " + modified);
-                Log.e(TAG, "Bitmap type: " + mCacheBitmap.getWidth() + "*" + mCacheBitmap.getHeight());
-                Log.e(TAG, "Utils.matToBitmap() throws an exception: " + e.getMessage());
-                bmpValid = false;
-            }
+        if (modified == null)
+            return;
+
+        final int index = acquireCacheBitmap();
+        if (index < 0)
+            return;
+        Bitmap bitmap = mCacheBitmaps[index];
+        try {
+            Utils.matToBitmap(modified, bitmap);
+        } catch(Exception e) {
+            Log.e(TAG, "Mat type: " + modified);
+            Log.e(TAG, "Bitmap type: " + bitmap.getWidth() + "*" + bitmap.getHeight());
+            Log.e(TAG, "Utils.matToBitmap() throws an exception: " + e.getMessage());
+            releaseCacheBitmap(index);
+            return;
         }
 
-        if (bmpValid && mCacheBitmap != null) {
-            Canvas canvas = getHolder().lockCanvas();
-            if (canvas != null) {
-                canvas.drawColor(0, android.graphics.PorterDuff.Mode.CLEAR);
-                if (BuildConfig.DEBUG)
-                    Log.d(TAG, "mStretch value: " + mScale);
-
-                if (mScale != 0) {
-                    canvas.drawBitmap(mCacheBitmap, new Rect(0,0,mCacheBitmap.getWidth(), mCacheBitmap.getHeight()),
-                         new Rect((int)((canvas.getWidth() - mScale*mCacheBitmap.getWidth()) / 2),
-                         (int)((canvas.getHeight() - mScale*mCacheBitmap.getHeight()) / 2),
-                         (int)((canvas.getWidth() - mScale*mCacheBitmap.getWidth()) / 2 + mScale*mCacheBitmap.getWidth()),
-                         (int)((canvas.getHeight() - mScale*mCacheBitmap.getHeight()) / 2 + mScale*mCacheBitmap.getHeight())), null);
-                } else {
-                     canvas.drawBitmap(mCacheBitmap, new Rect(0,0,mCacheBitmap.getWidth(), mCacheBitmap.getHeight()),
-                         new Rect((canvas.getWidth() - mCacheBitmap.getWidth()) / 2,
-                         (canvas.getHeight() - mCacheBitmap.getHeight()) / 2,
-                         (canvas.getWidth() - mCacheBitmap.getWidth()) / 2 + mCacheBitmap.getWidth(),
-                         (canvas.getHeight() - mCacheBitmap.getHeight()) / 2 + mCacheBitmap.getHeight()), null);
-                }
+        // the frame's Mats are not needed anymore, so the camera can move
+        // on to the next frame while this one is drawn
+        Handler handler = mRenderHandler;
+        if (handler == null || !handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        drawCacheBitmap(index, deliveredNanos);
+                    }
+                })) {
+            drawCacheBitmap(index, deliveredNanos);
+        }
+    }
 
-                if (mFpsMeter != null) {
-                    mFpsMeter.measure();
-                    mFpsMeter.draw(canvas, 20, 30);
+    // waits until the renderer is done with the next cache bitmap and
+    // marks it busy; returns -1 if there is no bitmap to convert into
+    private int acquireCacheBitmap() {
+        synchronized (mRenderLock) {
+            int index = mNextCacheBitmap;
+            while (mCacheBitmapBusy[index]) {
+                try {
+                    mRenderLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
                 }
-                getHolder().unlockCanvasAndPost(canvas);
             }
+            if (mCacheBitmaps[index] == null)
+                return -1;
+            mCacheBitmapBusy[index] = true;
+            mNextCacheBitmap = (index + 1) % mCacheBitmaps.length;
+            return index;
+        }
+    }
+
+    private void releaseCacheBitmap(int index) {
+        synchronized (mRenderLock) {
+            mCacheBitmapBusy[index] = false;
+            mRenderLock.notifyAll();
+        }
+    }
+
+    private void drawCacheBitmap(int index, long deliveredNanos) {
+        try {
+            Bitmap bitmap = mCacheBitmaps[index];
+            Canvas canvas = getHolder().lockCanvas();
+            if (canvas == null)
+                return;
+            canvas.drawColor(0, android.graphics.PorterDuff.Mode.CLEAR);
+            updateDrawRects(canvas.getWidth(), canvas.getHeight(), bitmap.getWidth(), bitmap.getHeight());
+            canvas.drawBitmap(bitmap, mSrcRect, mDstRect, null);
+
+            if (mFpsMeter != null) {
+                mFpsMeter.measure();
+                mFpsMeter.draw(canvas, 20, 30);
+            }
+            getHolder().unlockCanvasAndPost(canvas);
+            recordFrameLatency(System.nanoTime() - deliveredNanos);
+        } finally {
+            releaseCacheBitmap(index);
+        }
+    }
+
+    private void updateDrawRects(int canvasWidth, int canvasHeight, int bitmapWidth, int bitmapHeight) {
+        float scale = mScale;
+        if (canvasWidth == mRectCanvasWidth && canvasHeight == mRectCanvasHeight && scale == mRectScale
+                && bitmapWidth == mSrcRect.width() && bitmapHeight == mSrcRect.height())
+            return;
+
+        mSrcRect.set(0, 0, bitmapWidth, bitmapHeight);
+        if (scale != 0) {
+            mDstRect.set((int)((canvasWidth - scale*bitmapWidth) / 2),
+                    (int)((canvasHeight - scale*bitmapHeight) / 2),
+                    (int)((canvasWidth - scale*bitmapWidth) / 2 + scale*bitmapWidth),
+                    (int)((canvasHeight - scale*bitmapHeight) / 2 + scale*bitmapHeight));
+        } else {
+            mDstRect.set((canvasWidth - bitmapWidth) / 2,
+                    (canvasHeight - bitmapHeight) / 2,
+                    (canvasWidth - bitmapWidth) / 2 + bitmapWidth,
+                    (canvasHeight - bitmapHeight) / 2 + bitmapHeight);
+        }
+        mRectCanvasWidth = canvasWidth;
+        mRectCanvasHeight = canvasHeight;
+        mRectScale = scale;
+        if (BuildConfig.DEBUG)
+            Log.d(TAG, "mStretch value: " + scale + ", drawing " + mSrcRect + " to " + mDstRect);
+    }
+
+    private void recordFrameLatency(long nanos) {
+        mLastFrameLatencyNanos = nanos;
+        synchronized (mRenderLock) {
+            mFrameLatencySumNanos += nanos;
+            mFrameLatencyCount++;
+        }
+    }
+
+    /**
+     * Returns the time between the delivery of the last drawn frame to
+     * deliverAndDrawFrame() and the post of its canvas, in nanoseconds.
+     */
+    public long getLastFrameLatencyNanos() {
+        return mLastFrameLatencyNanos;
+    }
+
+    /**
+     * Returns the average frame-to-screen latency since the view was
+     * created, in nanoseconds, or 0 if no frame has been drawn yet.
+     */
+    public long getAverageFrameLatencyNanos() {
+        synchronized (mRenderLock) {
+            return mFrameLatencyCount == 0 ? 0 : mFrameLatencySumNanos / mFrameLatencyCount;
         }
     }
 
@@ -454,7 +591,10 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     // NOTE: On Android 4.1.x the function must be called before SurfaceTexture constructor!
     protected void AllocateCache()
     {
-        mCacheBitmap = Bitmap.createBitmap(mFrameWidth, mFrameHeight, Bitmap.Config.ARGB_8888);
+        synchronized (mRenderLock) {
+            for (int i = 0; i < mCacheBitmaps.length; i++)
+                mCacheBitmaps[i] = Bitmap.createBitmap(mFrameWidth, mFrameHeight, Bitmap.Config.ARGB_8888);
+        }
     }
 
     public interface ListItemAccessor {
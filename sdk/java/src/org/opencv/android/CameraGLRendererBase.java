@@ -8,6 +8,7 @@ import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 import org.opencv.android.CameraGLSurfaceView.CameraTextureListener;
+import org.opencv.android.CameraGLSurfaceView.FaceAtlasListener;
 
 import android.annotation.TargetApi;
 import android.graphics.SurfaceTexture;
@@ -45,6 +46,24 @@ public abstract class CameraGLRendererBase implements GLSurfaceView.Renderer, Su
             + "void main() {\n"
             + "  gl_FragColor = texture2D(sTexture,texCoord);\n" + "}";
 
+    // gray face crops packed four pixels per texel, see FaceAtlas;
+    // uStep is the distance between two output pixels along s
+    private final String fssGray = ""
+            + "#ifdef GL_FRAGMENT_PRECISION_HIGH\n"
+            + "precision highp float;\n"
+            + "#else\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "uniform sampler2D sTexture;\n"
+            + "uniform float uStep;\n"
+            + "varying vec2 texCoord;\n"
+            + "const vec3 luma = vec3(0.299, 0.587, 0.114);\n"
+            + "float gray(float dx) {\n"
+            + "  return dot(texture2D(sTexture, vec2(texCoord.x + dx * uStep, texCoord.y)).rgb, luma);\n"
+            + "}\n"
+            + "void main() {\n"
+            + "  gl_FragColor = vec4(gray(-1.5), gray(-0.5), gray(0.5), gray(1.5));\n" + "}";
+
     // coord-s
     private final float vertices[] = {
            -1, -1,
@@ -69,6 +88,19 @@ public abstract class CameraGLRendererBase implements GLSurfaceView.Renderer, Su
 
     private FloatBuffer vert, texOES, tex2D;
 
+    // face atlas stage
+    private int[] texAtlas = {0}, FBOAtlas = {0};
+    private int progGray = -1;
+    private int vPosGray, vTCGray, uStepGray;
+    private FloatBuffer texFace;
+    private final float[] mFaceTexCoords = new float[8];
+    private FaceAtlas mFaceAtlas;
+    private FaceAtlasListener mFaceAtlasListener;
+    private boolean mFaceAtlasChanged = false;
+    private int[] mFaceRects = new int[0];
+    private int mFaceCount = 0;
+    private ByteBuffer mAtlasPixels;
+
     protected int mCameraWidth = -1, mCameraHeight = -1;
     protected int mFBOWidth = -1, mFBOHeight = -1;
     protected int mMaxCameraWidth = -1, mMaxCameraHeight = -1;
@@ -94,6 +126,7 @@ public abstract class CameraGLRendererBase implements GLSurfaceView.Renderer, Su
         vert   = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
         texOES = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
         tex2D  = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        texFace = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
         vert.put(vertices).position(0);
         texOES.put(texCoordOES).position(0);
         tex2D.put(texCoord2D).position(0);
@@ -119,16 +152,30 @@ public abstract class CameraGLRendererBase implements GLSurfaceView.Renderer, Su
                 mUpdateST = false;
             }
 
+            if (mFaceAtlasChanged) {
+                initFaceAtlas();
+                mFaceAtlasChanged = false;
+            }
+
             GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
 
             CameraTextureListener texListener = mView.getCameraTextureListener();
-            if(texListener != null) {
+            boolean haveFaces = mFaceAtlasListener != null && mFaceCount > 0;
+            if(texListener != null || haveFaces) {
                 //Log.d(LOGTAG, "haveUserCallback");
                 // texCamera(OES) -> texFBO
                 drawTex(texCamera[0], true, FBO[0]);
 
-                // call user code (texFBO -> texDraw)
-                boolean modified = texListener.onCameraTexture(texFBO[0], texDraw[0], mCameraWidth, mCameraHeight);
+                if(haveFaces) {
+                    // texFBO -> face atlas -> user code
+                    drawFaceAtlas();
+                }
+
+                boolean modified = false;
+                if(texListener != null) {
+                    // call user code (texFBO -> texDraw)
+                    modified = texListener.onCameraTexture(texFBO[0], texDraw[0], mCameraWidth, mCameraHeight);
+                }
 
                 if(modified) {
                     // texDraw -> screen
@@ -158,6 +205,11 @@ public abstract class CameraGLRendererBase implements GLSurfaceView.Renderer, Su
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
         Log.i(LOGTAG, "onSurfaceCreated");
         initShaders();
+        synchronized(this) {
+            // objects of a lost context are gone, recreate them in the new one
+            texAtlas[0] = FBOAtlas[0] = 0;
+            mFaceAtlasChanged = mFaceAtlas != null;
+        }
     }
 
     private void initShaders() {
@@ -178,6 +230,13 @@ public abstract class CameraGLRendererBase implements GLSurfaceView.Renderer, Su
         vTC2D  = GLES20.glGetAttribLocation(prog2D, "vTexCoord");
         GLES20.glEnableVertexAttribArray(vPos2D);
         GLES20.glEnableVertexAttribArray(vTC2D);
+
+        progGray = loadShader(vss, fssGray);
+        vPosGray  = GLES20.glGetAttribLocation(progGray, "vPosition");
+        vTCGray   = GLES20.glGetAttribLocation(progGray, "vTexCoord");
+        uStepGray = GLES20.glGetUniformLocation(progGray, "uStep");
+        GLES20.glEnableVertexAttribArray(vPosGray);
+        GLES20.glEnableVertexAttribArray(vTCGray);
     }
 
     private void initSurfaceTexture() {
@@ -314,6 +373,88 @@ public abstract class CameraGLRendererBase implements GLSurfaceView.Renderer, Su
         mFBOHeight = height;
     }
 
+    private void deleteFaceAtlas()
+    {
+        if(FBOAtlas[0] != 0) {
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+            GLES20.glDeleteFramebuffers(1, FBOAtlas, 0);
+            FBOAtlas[0] = 0;
+        }
+        if(texAtlas[0] != 0) {
+            deleteTex(texAtlas);
+            texAtlas[0] = 0;
+        }
+        mAtlasPixels = null;
+    }
+
+    private void initFaceAtlas()
+    {
+        deleteFaceAtlas();
+        if(mFaceAtlas == null)
+            return;
+
+        int width = mFaceAtlas.getTextureWidth(), height = mFaceAtlas.getHeight();
+        Log.d(LOGTAG, "initFaceAtlas("+width+"x"+height+")");
+
+        GLES20.glGenTextures(1, texAtlas, 0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texAtlas[0]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+
+        GLES20.glGenFramebuffers(1, FBOAtlas, 0);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, FBOAtlas[0]);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, texAtlas[0], 0);
+
+        int FBOstatus = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+        if (FBOstatus != GLES20.GL_FRAMEBUFFER_COMPLETE)
+            Log.e(LOGTAG, "initFaceAtlas failed, status: " + FBOstatus);
+
+        // 4 gray pixels per RGBA texel: one byte per pixel on the CPU side
+        mAtlasPixels = ByteBuffer.allocateDirect(mFaceAtlas.getWidth() * height).order(ByteOrder.nativeOrder());
+    }
+
+    // render the current face boxes from texFBO into their atlas cells and
+    // read all of them back with one glReadPixels
+    private void drawFaceAtlas()
+    {
+        FaceAtlas atlas = mFaceAtlas;
+        int size = atlas.getFaceSize();
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, FBOAtlas[0]);
+        GLES20.glUseProgram(progGray);
+        GLES20.glVertexAttribPointer(vPosGray, 2, GLES20.GL_FLOAT, false, 4*2, vert);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texFBO[0]);
+        GLES20.glUniform1i(GLES20.glGetUniformLocation(progGray, "sTexture"), 0);
+
+        for(int i = 0; i < mFaceCount; i++) {
+            int width = mFaceRects[4*i+2];
+            FaceAtlas.texCoords(mFaceRects[4*i], mFaceRects[4*i+1], width, mFaceRects[4*i+3],
+                    mFBOWidth, mFBOHeight, mFaceTexCoords, 0);
+            texFace.put(mFaceTexCoords).position(0);
+            GLES20.glVertexAttribPointer(vTCGray, 2, GLES20.GL_FLOAT, false, 4*2, texFace);
+            GLES20.glUniform1f(uStepGray, (float) width / mFBOWidth / size);
+            GLES20.glViewport(atlas.cellLeft(i) / 4, atlas.cellTop(i), size / 4, size);
+            GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        }
+
+        // only the rows holding faces
+        int height = atlas.usedHeight(mFaceCount);
+        mAtlasPixels.clear();
+        GLES20.glReadPixels(0, 0, atlas.getTextureWidth(), height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, mAtlasPixels);
+        mAtlasPixels.limit(atlas.getWidth() * height);
+
+        // leave the FBO and full-frame viewport the camera texture listener
+        // expects after drawTex(texCamera, true, FBO)
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, FBO[0]);
+        GLES20.glViewport(0, 0, mFBOWidth, mFBOHeight);
+
+        mFaceAtlasListener.onFaceAtlas(atlas, mAtlasPixels, mFaceCount);
+    }
+
     // draw texture to FBO or to screen if fbo == 0
     private void drawTex(int tex, boolean isOES, int fbo)
     {
@@ -413,6 +554,31 @@ public abstract class CameraGLRendererBase implements GLSurfaceView.Renderer, Su
         if(listener != null) listener.onCameraViewStarted(mCameraWidth, mCameraHeight);
     }
 
+    /**
+     * Enables the face atlas stage: every frame the boxes set with {@link #setFaceRois} are
+     * grayscaled, scaled to {@code faceSize x faceSize} on the GPU and handed to
+     * {@code listener} on the GL thread. Pass a null listener to disable it.
+     */
+    public synchronized void setFaceAtlas(int faceSize, int maxFaces, FaceAtlasListener listener) {
+        mFaceAtlas = listener != null ? new FaceAtlas(faceSize, maxFaces) : null;
+        mFaceAtlasListener = listener;
+        mFaceAtlasChanged = true;
+        mFaceRects = mFaceAtlas != null ? new int[4 * maxFaces] : new int[0];
+        mFaceCount = 0;
+    }
+
+    /**
+     * Sets the face boxes rendered into the atlas from the next frame on, as
+     * {@code left, top, width, height} in pixels of the camera frame, top row first. The boxes
+     * are kept until they are set again; faces beyond the atlas capacity are ignored.
+     */
+    public synchronized void setFaceRois(int faces, int[] rects) {
+        if(mFaceAtlas == null)
+            return;
+        mFaceCount = Math.min(faces, mFaceAtlas.getMaxFaces());
+        System.arraycopy(rects, 0, mFaceRects, 0, 4 * mFaceCount);
+    }
+
     public void setCameraIndex(int cameraIndex) {
         disableView();
         mCameraIndex = cameraIndex;
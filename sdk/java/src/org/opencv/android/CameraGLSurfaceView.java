@@ -1,5 +1,7 @@
 package org.opencv.android;
 
+import java.nio.ByteBuffer;
+
 import org.opencv.R;
 
 import android.content.Context;
@@ -39,6 +41,16 @@ public class CameraGLSurfaceView extends GLSurfaceView {
         public boolean onCameraTexture(int texIn, int texOut, int width, int height);
     };
 
+    public interface FaceAtlasListener {
+        /**
+         * This method is invoked on the GL thread when the face crops of a frame have been read back.
+         * @param atlas -  the layout of `pixels`
+         * @param pixels - the gray atlas, `atlas.getWidth()` bytes per row; only valid during the call
+         * @param faces -  the number of faces in the atlas, in the order they were set
+         */
+        public void onFaceAtlas(FaceAtlas atlas, ByteBuffer pixels, int faces);
+    };
+
     private CameraTextureListener mTexListener;
     private CameraGLRendererBase mRenderer;
 
@@ -75,6 +87,14 @@ public class CameraGLSurfaceView extends GLSurfaceView {
         mRenderer.setCameraIndex(cameraIndex);
     }
 
+    public void setFaceAtlas(int faceSize, int maxFaces, FaceAtlasListener listener) {
+        mRenderer.setFaceAtlas(faceSize, maxFaces, listener);
+    }
+
+    public void setFaceRois(int faces, int[] rects) {
+        mRenderer.setFaceRois(faces, rects);
+    }
+
     public void setMaxCameraPreviewSize(int maxWidth, int maxHeight) {
         mRenderer.setMaxCameraPreviewSize(maxWidth, maxHeight);
     }
@@ -0,0 +1,171 @@
+package org.opencv.android;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the face atlas rendered by {@link CameraGLRendererBase}: up to {@code maxFaces}
+ * grayscale {@code faceSize x faceSize} face crops packed into one texture, so that all of them
+ * are read back with a single {@code glReadPixels}.
+ * <p>
+ * Faces are placed on a grid of {@link #getColumns()} x {@link #getRows()} cells, row by row.
+ * Each RGBA texel of the atlas texture holds four horizontally adjacent gray pixels in its R, G,
+ * B and A bytes, so the texture is {@link #getTextureWidth()} texels wide and the bytes read back
+ * form a {@link #getWidth()} x {@link #getHeight()} single channel image with one byte per pixel.
+ * Within a cell the first row read back is the top row of the face.
+ * <p>
+ * This class does not use OpenGL. {@link #render} produces the same bytes on the CPU and serves as
+ * the reference for the shader.
+ */
+public final class FaceAtlas {
+
+    private final int mFaceSize;
+    private final int mMaxFaces;
+    private final int mColumns;
+    private final int mRows;
+
+    /**
+     * @param faceSize width and height of each face crop in pixels, a multiple of 4 (e.g. 48)
+     * @param maxFaces number of faces the atlas has room for
+     */
+    public FaceAtlas(int faceSize, int maxFaces) {
+        if (faceSize <= 0 || faceSize % 4 != 0)
+            throw new IllegalArgumentException("Face size must be a positive multiple of 4: " + faceSize);
+        if (maxFaces <= 0)
+            throw new IllegalArgumentException("Face count must be positive: " + maxFaces);
+        mFaceSize = faceSize;
+        mMaxFaces = maxFaces;
+        // as square as possible to keep the texture well within GL_MAX_TEXTURE_SIZE
+        mColumns = (int) Math.ceil(Math.sqrt(maxFaces));
+        mRows = (maxFaces + mColumns - 1) / mColumns;
+    }
+
+    public int getFaceSize() {
+        return mFaceSize;
+    }
+
+    public int getMaxFaces() {
+        return mMaxFaces;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    /** Width of the atlas in gray pixels, which is also the row stride of the bytes read back. */
+    public int getWidth() {
+        return mColumns * mFaceSize;
+    }
+
+    /** Height of the atlas in pixels. */
+    public int getHeight() {
+        return mRows * mFaceSize;
+    }
+
+    /** Width of the RGBA atlas texture in texels. */
+    public int getTextureWidth() {
+        return getWidth() / 4;
+    }
+
+    /** Left edge of the cell of a face, in gray pixels. */
+    public int cellLeft(int face) {
+        checkFace(face);
+        return (face % mColumns) * mFaceSize;
+    }
+
+    /** Top edge of the cell of a face, i.e. the first row of it read back. */
+    public int cellTop(int face) {
+        checkFace(face);
+        return (face / mColumns) * mFaceSize;
+    }
+
+    /** Offset of the first pixel of a face in the bytes read back. */
+    public int offset(int face) {
+        return cellTop(face) * getWidth() + cellLeft(face);
+    }
+
+    /** Number of atlas rows that hold the first {@code faces} faces and have to be read back. */
+    public int usedHeight(int faces) {
+        if (faces <= 0)
+            return 0;
+        return cellTop(faces - 1) + mFaceSize;
+    }
+
+    /**
+     * Texture coordinates that map a face box onto its cell, in the order of the triangle strip
+     * (-1,-1), (-1,1), (1,-1), (1,1) used by {@link CameraGLRendererBase}.
+     * <p>
+     * The box is in pixels of the upright frame, top row first. The camera frame texture holds
+     * the bottom row of the frame at t = 0, so t is flipped here.
+     *
+     * @param out receives 8 floats starting at {@code offset}
+     */
+    public static void texCoords(int left, int top, int width, int height,
+                                 int frameWidth, int frameHeight, float[] out, int offset) {
+        float s0 = (float) left / frameWidth;
+        float s1 = (float) (left + width) / frameWidth;
+        float t0 = 1f - (float) top / frameHeight;
+        float t1 = 1f - (float) (top + height) / frameHeight;
+        out[offset]     = s0; out[offset + 1] = t0;
+        out[offset + 2] = s0; out[offset + 3] = t1;
+        out[offset + 4] = s1; out[offset + 5] = t0;
+        out[offset + 6] = s1; out[offset + 7] = t1;
+    }
+
+    /**
+     * CPU reference of the atlas stage: writes the gray crops of the given faces into
+     * {@code atlas} exactly as they are laid out in the bytes read back from the GPU. Each output
+     * pixel takes the nearest source pixel to its center, like the GPU sampling the
+     * {@code GL_NEAREST} frame texture, and is converted with the BT.601 luma weights. Cells of
+     * unused faces are left untouched.
+     *
+     * @param frame       RGBA_8888 pixels of the upright frame, top row first
+     * @param rowStride   bytes between the starts of two frame rows
+     * @param frameWidth  frame width in pixels
+     * @param frameHeight frame height in pixels
+     * @param faces       number of faces, at most {@link #getMaxFaces()}
+     * @param rects       {@code left, top, width, height} of every face, in frame pixels
+     * @param atlas       receives the atlas at absolute indices, at least {@code getWidth() *
+     *                    usedHeight(faces)} bytes
+     */
+    public void render(ByteBuffer frame, int rowStride, int frameWidth, int frameHeight,
+                       int faces, int[] rects, ByteBuffer atlas) {
+        if (faces > mMaxFaces)
+            throw new IllegalArgumentException("The atlas has room for " + mMaxFaces + " faces, got " + faces);
+        int stride = getWidth();
+        for (int face = 0; face < faces; face++) {
+            int left = rects[4 * face];
+            int top = rects[4 * face + 1];
+            float scaleX = (float) rects[4 * face + 2] / mFaceSize;
+            float scaleY = (float) rects[4 * face + 3] / mFaceSize;
+            int offset = offset(face);
+            for (int y = 0; y < mFaceSize; y++) {
+                int sy = clamp((int) Math.floor(top + (y + 0.5f) * scaleY), frameHeight);
+                int row = sy * rowStride;
+                for (int x = 0; x < mFaceSize; x++) {
+                    int sx = clamp((int) Math.floor(left + (x + 0.5f) * scaleX), frameWidth);
+                    int p = row + 4 * sx;
+                    atlas.put(offset + y * stride + x, gray(frame.get(p), frame.get(p + 1), frame.get(p + 2)));
+                }
+            }
+        }
+    }
+
+    /** BT.601 luma of an RGB pixel rounded like a normalized fixed point render target. */
+    public static byte gray(byte r, byte g, byte b) {
+        float y = 0.299f * (r & 0xFF) + 0.587f * (g & 0xFF) + 0.114f * (b & 0xFF);
+        return (byte) Math.min(255, Math.round(y));
+    }
+
+    private static int clamp(int v, int size) {
+        return v < 0 ? 0 : (v >= size ? size - 1 : v);
+    }
+
+    private void checkFace(int face) {
+        if (face < 0 || face >= mMaxFaces)
+            throw new IndexOutOfBoundsException("Face " + face + " of " + mMaxFaces);
+    }
+}
@@ -0,0 +1,172 @@
+package org.opencv.android;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free bookkeeping for a ring of N preallocated frame slots shared by one producer (the
+ * camera callback) and one consumer (the processing thread). The ring only hands out slot
+ * indices; the caller keeps the frame data in its own arrays.
+ * <p>
+ * Every slot is FREE, being written, READY or being read, and moves between these states with a
+ * compare-and-set, so neither side ever blocks the other. The consumer always reads the READY slot
+ * with the lowest sequence number. When no slot is free the producer either takes over the oldest
+ * READY slot ({@link DropPolicy#DROP_OLDEST}) or discards the new frame
+ * ({@link DropPolicy#DROP_NEWEST}).
+ */
+public final class FrameRing {
+
+    public enum DropPolicy {
+        /** Overwrite the oldest frame not yet delivered: lowest latency. */
+        DROP_OLDEST,
+        /** Keep the queued frames and discard the incoming one: no frame is skipped once queued. */
+        DROP_NEWEST
+    }
+
+    private static final int FREE = 0;
+    private static final int WRITING = 1;
+    private static final int READY = 2;
+    private static final int READING = 3;
+
+    private final DropPolicy mPolicy;
+    private final AtomicIntegerArray mStates;
+    // sequence number of the frame in each slot, written by the producer
+    // while it owns the slot
+    private final AtomicLongArray mSequences;
+    private long mNextSequence;
+
+    private final AtomicLong mFramesWritten = new AtomicLong();
+    private final AtomicLong mFramesDelivered = new AtomicLong();
+    private final AtomicLong mFramesOverwritten = new AtomicLong();
+    private final AtomicLong mFramesDropped = new AtomicLong();
+
+    /**
+     * @param slots  number of frame slots; one is being read at any time, so at least 2
+     * @param policy what to do with a new frame when every slot is in use
+     */
+    public FrameRing(int slots, DropPolicy policy) {
+        if (slots < 2)
+            throw new IllegalArgumentException("A frame ring needs at least 2 slots");
+        mPolicy = policy;
+        mStates = new AtomicIntegerArray(slots);
+        mSequences = new AtomicLongArray(slots);
+    }
+
+    public int getSlotCount() {
+        return mSequences.length();
+    }
+
+    public DropPolicy getDropPolicy() {
+        return mPolicy;
+    }
+
+    /**
+     * Producer side: reserves a slot for a new frame.
+     *
+     * @return the slot to fill, or -1 if the frame has to be dropped
+     */
+    public int beginWrite() {
+        for (int i = 0; i < mSequences.length(); i++) {
+            if (mStates.compareAndSet(i, FREE, WRITING))
+                return i;
+        }
+        if (mPolicy == DropPolicy.DROP_NEWEST) {
+            mFramesDropped.incrementAndGet();
+            return -1;
+        }
+        // every slot is queued or being read: steal the oldest queued one,
+        // unless the consumer claims it first
+        while (true) {
+            int oldest = oldestReady();
+            if (oldest < 0) {
+                // the consumer has just freed or claimed slots
+                for (int i = 0; i < mSequences.length(); i++) {
+                    if (mStates.compareAndSet(i, FREE, WRITING))
+                        return i;
+                }
+                continue;
+            }
+            if (mStates.compareAndSet(oldest, READY, WRITING)) {
+                mFramesOverwritten.incrementAndGet();
+                return oldest;
+            }
+        }
+    }
+
+    /** Producer side: publishes a slot filled after {@link #beginWrite()}. */
+    public void endWrite(int slot) {
+        mSequences.set(slot, mNextSequence++);
+        mFramesWritten.incrementAndGet();
+        mStates.set(slot, READY);
+    }
+
+    /**
+     * Consumer side: claims the oldest published frame.
+     *
+     * @return the slot to read, or -1 if no frame is waiting
+     */
+    public int beginRead() {
+        while (true) {
+            int oldest = oldestReady();
+            if (oldest < 0)
+                return -1;
+            if (!mStates.compareAndSet(oldest, READY, READING))
+                continue;
+            // the producer may have overwritten the slot with a newer frame
+            // between the scan and the claim; hand it back if so
+            int older = oldestReady();
+            if (older >= 0 && mSequences.get(older) < mSequences.get(oldest)) {
+                mStates.set(oldest, READY);
+                continue;
+            }
+            return oldest;
+        }
+    }
+
+    /** Consumer side: returns a slot claimed with {@link #beginRead()} to the producer. */
+    public void endRead(int slot) {
+        mFramesDelivered.incrementAndGet();
+        mStates.set(slot, FREE);
+    }
+
+    /** Sequence number of the frame in a slot owned by the caller, counting from 0. */
+    public long getSequence(int slot) {
+        return mSequences.get(slot);
+    }
+
+    /** Number of frames published by the producer. */
+    public long getFramesWritten() {
+        return mFramesWritten.get();
+    }
+
+    /** Number of frames the consumer finished reading. */
+    public long getFramesDelivered() {
+        return mFramesDelivered.get();
+    }
+
+    /** Number of queued frames replaced by a newer one under {@link DropPolicy#DROP_OLDEST}. */
+    public long getFramesOverwritten() {
+        return mFramesOverwritten.get();
+    }
+
+    /** Number of incoming frames discarded under {@link DropPolicy#DROP_NEWEST}. */
+    public long getFramesDropped() {
+        return mFramesDropped.get();
+    }
+
+    // the READY slot holding the lowest sequence number, or -1; the
+    // sequence of a READY slot is stable until someone claims it by CAS,
+    // and the CAS that follows tells whether the read was still valid
+    private int oldestReady() {
+        int oldest = -1;
+        long oldestSequence = Long.MAX_VALUE;
+        for (int i = 0; i < mSequences.length(); i++) {
+            if (mStates.get(i) == READY && mSequences.get(i) < oldestSequence) {
+                oldest = i;
+                oldestSequence = mSequences.get(i);
+            }
+        }
+        return oldest;
+    }
+}
@@ -55,6 +55,10 @@ public class JavaCamera2View extends CameraBridgeViewBase {
     private HandlerThread mBackgroundThread;
     protected Handler mBackgroundHandler;
 
+    // reused for every frame; only touched on the background thread that
+    // delivers the frames, or after that thread has been stopped
+    private JavaCamera2Frame mFrame;
+
     public JavaCamera2View(Context context, int cameraId) {
         super(context, cameraId);
     }
@@ -183,9 +187,18 @@ public class JavaCamera2View extends CameraBridgeViewBase {
                     assert (planes.length == 3);
                     assert (image.getFormat() == mPreviewFormat);
 
-                    JavaCamera2Frame tempFrame = new JavaCamera2Frame(image);
-                    deliverAndDrawFrame(tempFrame);
-                    tempFrame.release();
+                    JavaCamera2Frame frame = mFrame;
+                    if (frame == null || !frame.fits(image)) {
+                        // the reader outlived a size change, don't keep a
+                        // pool of the wrong size around
+                        Log.w(LOGTAG, "Frame size changed to " + image.getWidth() + "x" + image.getHeight());
+                        if (frame != null)
+                            frame.release();
+                        frame = mFrame = new JavaCamera2Frame(image.getWidth(), image.getHeight());
+                    }
+                    frame.setImage(image);
+                    deliverAndDrawFrame(frame);
+                    frame.setImage(null);
                     image.close();
                 }
             }, mBackgroundHandler);
@@ -247,6 +260,10 @@ public class JavaCamera2View extends CameraBridgeViewBase {
                 mImageReader.close();
                 mImageReader = null;
             }
+            if (null != mFrame) {
+                mFrame.release();
+                mFrame = null;
+            }
         }
         Log.i(LOGTAG, "camera closed!");
     }
@@ -327,6 +344,28 @@ public class JavaCamera2View extends CameraBridgeViewBase {
         return true;
     }
 
+    @Override
+    protected void AllocateCache()
+    {
+        super.AllocateCache();
+        final int width = mFrameWidth, height = mFrameHeight;
+        Runnable allocate = new Runnable() {
+            @Override
+            public void run() {
+                if (mFrame != null)
+                    mFrame.release();
+                mFrame = new JavaCamera2Frame(width, height);
+            }
+        };
+        // swap the frame between two images on the thread that delivers
+        // them, so it is never released while a listener is using it
+        Handler handler = mBackgroundHandler;
+        if (handler != null)
+            handler.post(allocate);
+        else
+            allocate.run();
+    }
+
     private class JavaCamera2Frame implements CvCameraViewFrame {
         @Override
         public Mat gray() {
@@ -336,8 +375,9 @@ public class JavaCamera2View extends CameraBridgeViewBase {
             assert(planes[0].getPixelStride() == 1);
             ByteBuffer y_plane = planes[0].getBuffer();
             int y_plane_step = planes[0].getRowStride();
-            mGray = new Mat(h, w, CvType.CV_8UC1, y_plane, y_plane_step);
-            return mGray;
+            // the caller may still hold the header of an earlier frame, so
+            // it is left to the cleaner instead of being closed here
+            return new Mat(h, w, CvType.CV_8UC1, y_plane, y_plane_step);
         }
 
         @Override
@@ -357,91 +397,92 @@ public class JavaCamera2View extends CameraBridgeViewBase {
                 int uv_plane1_step = planes[1].getRowStride();
                 ByteBuffer uv_plane2 = planes[2].getBuffer();
                 int uv_plane2_step = planes[2].getRowStride();
-                Mat y_mat = new Mat(h, w, CvType.CV_8UC1, y_plane, y_plane_step);
-                Mat uv_mat1 = new Mat(h / 2, w / 2, CvType.CV_8UC2, uv_plane1, uv_plane1_step);
-                Mat uv_mat2 = new Mat(h / 2, w / 2, CvType.CV_8UC2, uv_plane2, uv_plane2_step);
-                long addr_diff = uv_mat2.dataAddr() - uv_mat1.dataAddr();
-                if (addr_diff > 0) {
-                    assert(addr_diff == 1);
-                    Imgproc.cvtColorTwoPlane(y_mat, uv_mat1, mRgba, Imgproc.COLOR_YUV2RGBA_NV12);
-                } else {
-                    assert(addr_diff == -1);
-                    Imgproc.cvtColorTwoPlane(y_mat, uv_mat2, mRgba, Imgproc.COLOR_YUV2RGBA_NV21);
+                // headers over the image planes, freed as soon as the
+                // frame has been converted
+                try (Mat y_mat = new Mat(h, w, CvType.CV_8UC1, y_plane, y_plane_step);
+                     Mat uv_mat1 = new Mat(h / 2, w / 2, CvType.CV_8UC2, uv_plane1, uv_plane1_step);
+                     Mat uv_mat2 = new Mat(h / 2, w / 2, CvType.CV_8UC2, uv_plane2, uv_plane2_step)) {
+                    long addr_diff = uv_mat2.dataAddr() - uv_mat1.dataAddr();
+                    if (addr_diff > 0) {
+                        assert(addr_diff == 1);
+                        Imgproc.cvtColorTwoPlane(y_mat, uv_mat1, mRgba, Imgproc.COLOR_YUV2RGBA_NV12);
+                    } else {
+                        assert(addr_diff == -1);
+                        Imgproc.cvtColorTwoPlane(y_mat, uv_mat2, mRgba, Imgproc.COLOR_YUV2RGBA_NV21);
+                    }
                 }
                 return mRgba;
             } else { // Chroma channels are not interleaved
-                byte[] yuv_bytes = new byte[w*(h+h/2)];
+                assert(planes[0].getPixelStride() == 1);
+                assert(planes[2].getPixelStride() == 1);
                 ByteBuffer y_plane = planes[0].getBuffer();
+                int y_plane_step = planes[0].getRowStride();
                 ByteBuffer u_plane = planes[1].getBuffer();
+                int u_plane_step = planes[1].getRowStride();
                 ByteBuffer v_plane = planes[2].getBuffer();
-
-                int yuv_bytes_offset = 0;
-
-                int y_plane_step = planes[0].getRowStride();
-                if (y_plane_step == w) {
-                    y_plane.get(yuv_bytes, 0, w*h);
-                    yuv_bytes_offset = w*h;
-                } else {
-                    int padding = y_plane_step - w;
-                    for (int i = 0; i < h; i++){
-                        y_plane.get(yuv_bytes, yuv_bytes_offset, w);
-                        yuv_bytes_offset += w;
-                        if (i < h - 1) {
-                            y_plane.position(y_plane.position() + padding);
-                        }
-                    }
-                    assert(yuv_bytes_offset == w * h);
+                int v_plane_step = planes[2].getRowStride();
+                // repack the strided planes into the pooled I420 buffer,
+                // one native copy per plane
+                try (Mat y_mat = new Mat(h, w, CvType.CV_8UC1, y_plane, y_plane_step);
+                     Mat u_mat = new Mat(h / 2, w / 2, CvType.CV_8UC1, u_plane, u_plane_step);
+                     Mat v_mat = new Mat(h / 2, w / 2, CvType.CV_8UC1, v_plane, v_plane_step)) {
+                    y_mat.copyTo(mYuvY);
+                    u_mat.copyTo(mYuvU);
+                    v_mat.copyTo(mYuvV);
                 }
-
-                int chromaRowStride = planes[1].getRowStride();
-                int chromaRowPadding = chromaRowStride - w/2;
-
-                if (chromaRowPadding == 0){
-                    // When the row stride of the chroma channels equals their width, we can copy
-                    // the entire channels in one go
-                    u_plane.get(yuv_bytes, yuv_bytes_offset, w*h/4);
-                    yuv_bytes_offset += w*h/4;
-                    v_plane.get(yuv_bytes, yuv_bytes_offset, w*h/4);
-                } else {
-                    // When not equal, we need to copy the channels row by row
-                    for (int i = 0; i < h/2; i++){
-                        u_plane.get(yuv_bytes, yuv_bytes_offset, w/2);
-                        yuv_bytes_offset += w/2;
-                        if (i < h/2-1){
-                            u_plane.position(u_plane.position() + chromaRowPadding);
-                        }
-                    }
-                    for (int i = 0; i < h/2; i++){
-                        v_plane.get(yuv_bytes, yuv_bytes_offset, w/2);
-                        yuv_bytes_offset += w/2;
-                        if (i < h/2-1){
-                            v_plane.position(v_plane.position() + chromaRowPadding);
-                        }
-                    }
-                }
-
-                Mat yuv_mat = new Mat(h+h/2, w, CvType.CV_8UC1);
-                yuv_mat.put(0, 0, yuv_bytes);
-                Imgproc.cvtColor(yuv_mat, mRgba, Imgproc.COLOR_YUV2RGBA_I420, 4);
+                Imgproc.cvtColor(mYuv, mRgba, Imgproc.COLOR_YUV2RGBA_I420, 4);
                 return mRgba;
             }
         }
 
 
-        public JavaCamera2Frame(Image image) {
+        public JavaCamera2Frame(int width, int height) {
             super();
-            mImage = image;
+            mWidth = width;
+            mHeight = height;
             mRgba = new Mat();
-            mGray = new Mat();
+            mYuv = Mat.allocateDirect(height + height / 2, width, CvType.CV_8UC1);
+            ByteBuffer yuv = mYuv.dataBuffer();
+            mYuvY = new Mat(height, width, CvType.CV_8UC1, slice(yuv, 0));
+            mYuvU = new Mat(height / 2, width / 2, CvType.CV_8UC1, slice(yuv, width * height));
+            mYuvV = new Mat(height / 2, width / 2, CvType.CV_8UC1,
+                    slice(yuv, width * height + (width / 2) * (height / 2)));
+        }
+
+        public boolean fits(Image image) {
+            return image.getWidth() == mWidth && image.getHeight() == mHeight;
+        }
+
+        public void setImage(Image image) {
+            mImage = image;
         }
 
+        // deletes the pooled headers and buffers right away instead of
+        // waiting for the garbage collector; the Mats handed out by rgba()
+        // and gray() may still be held by the listener, so only the pixels
+        // of mRgba are freed and the headers are left to the cleaner
         public void release() {
             mRgba.release();
-            mGray.release();
+            mYuvY.close();
+            mYuvU.close();
+            mYuvV.close();
+            mYuv.close();
+        }
+
+        private ByteBuffer slice(ByteBuffer buffer, int offset) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            return view.slice();
         }
 
+        private final int mWidth;
+        private final int mHeight;
         private Image mImage;
         private Mat mRgba;
-        private Mat mGray;
+        // I420 frame, with headers over its Y, U and V planes
+        private final Mat mYuv;
+        private final Mat mYuvY;
+        private final Mat mYuvU;
+        private final Mat mYuvV;
     };
 }
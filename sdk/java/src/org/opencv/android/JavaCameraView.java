@@ -1,6 +1,7 @@
 package org.opencv.android;
 
 import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
 import android.content.Context;
 import android.graphics.ImageFormat;
@@ -33,10 +34,13 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
     private static final String TAG = "JavaCameraView";
 
     private byte mBuffer[];
+    // one NV21/YV12 Mat and frame per ring slot
     private Mat[] mFrameChain;
-    private int mChainIdx = 0;
-    private Thread mThread;
-    private boolean mStopThread;
+    private int mFrameSlots = 2;
+    private FrameRing.DropPolicy mDropPolicy = FrameRing.DropPolicy.DROP_OLDEST;
+    private volatile FrameRing mFrameRing;
+    private volatile Thread mThread;
+    private volatile boolean mStopThread;
 
     protected Camera mCamera;
     protected JavaCameraFrame[] mCameraFrame;
@@ -195,15 +199,16 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
                     mCamera.addCallbackBuffer(mBuffer);
                     mCamera.setPreviewCallbackWithBuffer(this);
 
-                    mFrameChain = new Mat[2];
-                    mFrameChain[0] = new Mat(mFrameHeight + (mFrameHeight/2), mFrameWidth, CvType.CV_8UC1);
-                    mFrameChain[1] = new Mat(mFrameHeight + (mFrameHeight/2), mFrameWidth, CvType.CV_8UC1);
+                    mFrameChain = new Mat[mFrameSlots];
+                    for (int i = 0; i < mFrameSlots; i++)
+                        mFrameChain[i] = new Mat(mFrameHeight + (mFrameHeight/2), mFrameWidth, CvType.CV_8UC1);
 
                     AllocateCache();
 
-                    mCameraFrame = new JavaCameraFrame[2];
-                    mCameraFrame[0] = new JavaCameraFrame(mFrameChain[0], mFrameWidth, mFrameHeight);
-                    mCameraFrame[1] = new JavaCameraFrame(mFrameChain[1], mFrameWidth, mFrameHeight);
+                    mCameraFrame = new JavaCameraFrame[mFrameSlots];
+                    for (int i = 0; i < mFrameSlots; i++)
+                        mCameraFrame[i] = new JavaCameraFrame(mFrameChain[i], mFrameWidth, mFrameHeight);
+                    mFrameRing = new FrameRing(mFrameSlots, mDropPolicy);
 
                     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
                         mSurfaceTexture = new SurfaceTexture(MAGIC_TEXTURE_ID);
@@ -235,18 +240,35 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
                 mCamera.release();
             }
             mCamera = null;
+            mFrameRing = null;
             if (mFrameChain != null) {
-                mFrameChain[0].release();
-                mFrameChain[1].release();
+                for (Mat m : mFrameChain)
+                    m.release();
             }
             if (mCameraFrame != null) {
-                mCameraFrame[0].release();
-                mCameraFrame[1].release();
+                for (JavaCameraFrame f : mCameraFrame)
+                    f.release();
             }
         }
     }
 
-    private boolean mCameraFrameReady = false;
+    /**
+     * Sets the number of preview frames buffered between the camera callback and the processing
+     * thread, and what happens to a new frame when all of them are in use. One slot is always the
+     * frame being processed. Takes effect the next time the camera is connected; the default is 2
+     * slots with {@link FrameRing.DropPolicy#DROP_OLDEST}.
+     */
+    public void setFrameRing(int slots, FrameRing.DropPolicy policy) {
+        if (slots < 2)
+            throw new IllegalArgumentException("At least 2 frame slots are needed");
+        mFrameSlots = slots;
+        mDropPolicy = policy;
+    }
+
+    /** Returns the frame ring of the current camera connection, with its counters, or null. */
+    public FrameRing getFrameRing() {
+        return mFrameRing;
+    }
 
     @Override
     protected boolean connectCamera(int width, int height) {
@@ -259,8 +281,6 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
         if (!initializeCamera(width, height))
             return false;
 
-        mCameraFrameReady = false;
-
         /* now we can start update thread */
         Log.d(TAG, "Starting processing thread");
         mStopThread = false;
@@ -279,12 +299,12 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
         try {
             mStopThread = true;
             Log.d(TAG, "Notify thread");
-            synchronized (this) {
-                this.notify();
-            }
+            Thread thread = mThread;
+            if (thread != null)
+                LockSupport.unpark(thread);
             Log.d(TAG, "Waiting for thread");
-            if (mThread != null)
-                mThread.join();
+            if (thread != null)
+                thread.join();
         } catch (InterruptedException e) {
             e.printStackTrace();
         } finally {
@@ -293,18 +313,24 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
 
         /* Now release camera */
         releaseCamera();
-
-        mCameraFrameReady = false;
     }
 
     @Override
     public void onPreviewFrame(byte[] frame, Camera arg1) {
         if (BuildConfig.DEBUG)
             Log.d(TAG, "Preview Frame received. Frame size: " + frame.length);
-        synchronized (this) {
-            mFrameChain[mChainIdx].put(0, 0, frame);
-            mCameraFrameReady = true;
-            this.notify();
+        // never waits for the processing thread: a busy ring drops a frame
+        // according to its policy instead
+        FrameRing ring = mFrameRing;
+        if (ring != null) {
+            int slot = ring.beginWrite();
+            if (slot >= 0) {
+                mFrameChain[slot].put(0, 0, frame);
+                ring.endWrite(slot);
+                Thread thread = mThread;
+                if (thread != null)
+                    LockSupport.unpark(thread);
+            }
         }
         if (mCamera != null)
             mCamera.addCallbackBuffer(mBuffer);
@@ -350,27 +376,19 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
 
         @Override
         public void run() {
+            FrameRing ring = mFrameRing;
             do {
-                boolean hasFrame = false;
-                synchronized (JavaCameraView.this) {
-                    try {
-                        while (!mCameraFrameReady && !mStopThread) {
-                            JavaCameraView.this.wait();
-                        }
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                    if (mCameraFrameReady)
-                    {
-                        mChainIdx = 1 - mChainIdx;
-                        mCameraFrameReady = false;
-                        hasFrame = true;
-                    }
+                int slot = ring.beginRead();
+                if (slot < 0) {
+                    // onPreviewFrame() and disconnectCamera() unpark us
+                    LockSupport.park(this);
+                    continue;
                 }
-
-                if (!mStopThread && hasFrame) {
-                    if (!mFrameChain[1 - mChainIdx].empty())
-                        deliverAndDrawFrame(mCameraFrame[1 - mChainIdx]);
+                try {
+                    if (!mStopThread && !mFrameChain[slot].empty())
+                        deliverAndDrawFrame(mCameraFrame[slot]);
+                } finally {
+                    ring.endRead(slot);
                 }
             } while (!mStopThread);
             Log.d(TAG, "Finish processing thread");
@@ -0,0 +1,137 @@
+package org.opencv.android;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pending result of {@link OpenCVLoader#initDebugAsync()}: the OpenCV native libraries being
+ * loaded from the application package on a background thread.
+ * <p>
+ * The future completes with the same value {@link OpenCVLoader#initDebug()} returns. It is shared
+ * by the whole process and therefore cannot be cancelled. Listeners registered with
+ * {@link #addListener} run once it completes, so callers can wait for it together with other
+ * asynchronous work without blocking a thread.
+ */
+public final class OpenCVInitFuture implements Future<Boolean> {
+
+    private final FutureTask<Boolean> mTask;
+    // library name -> load time, in load order; written by the init thread only
+    private final Map<String, Long> mLoadTimes = new LinkedHashMap<String, Long>();
+    private volatile long mInitNanos = -1;
+    private final List<Runnable> mListeners = new ArrayList<Runnable>();
+
+    OpenCVInitFuture(final boolean InitCuda)
+    {
+        mTask = new FutureTask<Boolean>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                long start = System.nanoTime();
+                try {
+                    return StaticHelper.initOpenCV(InitCuda, mLoadTimes);
+                } finally {
+                    mInitNanos = System.nanoTime() - start;
+                }
+            }
+        }) {
+            @Override
+            protected void done() {
+                runListeners();
+            }
+        };
+    }
+
+    void start()
+    {
+        new Thread(mTask, "OpenCVInit").start();
+    }
+
+    /**
+     * Runs {@code listener} on {@code executor} once initialization has finished, or right away if
+     * it already has.
+     */
+    public void addListener(final Runnable listener, final Executor executor)
+    {
+        synchronized (mListeners) {
+            if (!mTask.isDone()) {
+                mListeners.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        executor.execute(listener);
+                    }
+                });
+                return;
+            }
+        }
+        executor.execute(listener);
+    }
+
+    /**
+     * Time each native library took to load, in nanoseconds and in load order. Empty until the
+     * future is done.
+     */
+    public Map<String, Long> getLoadTimesNanos()
+    {
+        if (!mTask.isDone())
+            return Collections.emptyMap();
+        return Collections.unmodifiableMap(mLoadTimes);
+    }
+
+    /** Wall time of the whole initialization in nanoseconds, or -1 until the future is done. */
+    public long getInitNanos()
+    {
+        return mTask.isDone() ? mInitNanos : -1;
+    }
+
+    /** Initialization is shared by the process and is never cancelled. */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return mTask.isDone();
+    }
+
+    @Override
+    public Boolean get() throws InterruptedException, ExecutionException
+    {
+        return mTask.get();
+    }
+
+    @Override
+    public Boolean get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException
+    {
+        return mTask.get(timeout, unit);
+    }
+
+    private void runListeners()
+    {
+        List<Runnable> listeners;
+        synchronized (mListeners) {
+            listeners = new ArrayList<Runnable>(mListeners);
+            mListeners.clear();
+        }
+        for (Runnable listener : listeners)
+            listener.run();
+    }
+}
@@ -117,6 +117,23 @@ public class OpenCVLoader
         return StaticHelper.initOpenCV(InitCuda);
     }
 
+    private static OpenCVInitFuture sInitFuture;
+
+    /**
+     * Loads and initializes OpenCV library from current application package on a background thread, once per process.
+     * Unlike initDebug() it does not block the caller, so it can overlap with other startup work such as opening the camera.
+     * @return Returns the pending initialization, the same one on every call. It completes with true if initialization of OpenCV was successful.
+     */
+    public static synchronized OpenCVInitFuture initDebugAsync()
+    {
+        if (sInitFuture == null)
+        {
+            sInitFuture = new OpenCVInitFuture(false);
+            sInitFuture.start();
+        }
+        return sInitFuture;
+    }
+
     /**
      * Loads and initializes OpenCV library using OpenCV Engine service.
      * @param Version OpenCV library version.
@@ -2,31 +2,42 @@ package org.opencv.android;
 
 import org.opencv.core.Core;
 
+import java.util.Map;
 import java.util.StringTokenizer;
 import android.util.Log;
 
 class StaticHelper {
 
     public static boolean initOpenCV(boolean InitCuda)
+    {
+        return initOpenCV(InitCuda, null);
+    }
+
+    // LoadTimes, if not null, receives the load time of every library in
+    // nanoseconds
+    public static boolean initOpenCV(boolean InitCuda, Map<String, Long> LoadTimes)
     {
         boolean result;
         String libs = "";
 
         if(InitCuda)
         {
-            loadLibrary("cudart");
-            loadLibrary("nppc");
-            loadLibrary("nppi");
-            loadLibrary("npps");
-            loadLibrary("cufft");
-            loadLibrary("cublas");
+            loadLibrary("cudart", LoadTimes);
+            loadLibrary("nppc", LoadTimes);
+            loadLibrary("nppi", LoadTimes);
+            loadLibrary("npps", LoadTimes);
+            loadLibrary("cufft", LoadTimes);
+            loadLibrary("cublas", LoadTimes);
         }
 
         Log.d(TAG, "Trying to get library list");
 
         try
         {
+            long start = System.nanoTime();
             System.loadLibrary("opencv_info");
+            if (LoadTimes != null)
+                LoadTimes.put("opencv_info", System.nanoTime() - start);
             libs = getLibraryList();
         }
         catch(UnsatisfiedLinkError e)
@@ -36,7 +47,7 @@ class StaticHelper {
 
         Log.d(TAG, "Library list: \"" + libs + "\"");
         Log.d(TAG, "First attempt to load libs");
-        if (initOpenCVLibs(libs))
+        if (initOpenCVLibs(libs, LoadTimes))
         {
             Log.d(TAG, "First attempt to load libs is OK");
             String eol = System.getProperty("line.separator");
@@ -54,15 +65,19 @@ class StaticHelper {
         return result;
     }
 
-    private static boolean loadLibrary(String Name)
+    private static boolean loadLibrary(String Name, Map<String, Long> LoadTimes)
     {
         boolean result = true;
 
         Log.d(TAG, "Trying to load library " + Name);
         try
         {
+            long start = System.nanoTime();
             System.loadLibrary(Name);
-            Log.d(TAG, "Library " + Name + " loaded");
+            long elapsed = System.nanoTime() - start;
+            if (LoadTimes != null)
+                LoadTimes.put(Name, elapsed);
+            Log.d(TAG, "Library " + Name + " loaded in " + elapsed / 1000 + " us");
         }
         catch(UnsatisfiedLinkError e)
         {
@@ -74,7 +89,7 @@ class StaticHelper {
         return result;
     }
 
-    private static boolean initOpenCVLibs(String Libs)
+    private static boolean initOpenCVLibs(String Libs, Map<String, Long> LoadTimes)
     {
         Log.d(TAG, "Trying to init OpenCV libs");
 
@@ -86,13 +101,13 @@ class StaticHelper {
             StringTokenizer splitter = new StringTokenizer(Libs, ";");
             while(splitter.hasMoreTokens())
             {
-                result &= loadLibrary(splitter.nextToken());
+                result &= loadLibrary(splitter.nextToken(), LoadTimes);
             }
         }
         else
         {
             // If dependencies list is not defined or empty.
-            result = loadLibrary("opencv_java3");
+            result = loadLibrary("opencv_java3", LoadTimes);
         }
 
         return result;
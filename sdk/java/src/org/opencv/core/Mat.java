@@ -1,17 +1,31 @@
 package org.opencv.core;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 // C++: class Mat
 //javadoc: Mat
-public class Mat {
+//
+// The native Mat header is deleted exactly once: by close(), which makes
+// Mat usable with try-with-resources, or by MatCleaner once the Java
+// object has become unreachable. A closed Mat must not be used again.
+public class Mat implements AutoCloseable {
 
     public final long nativeObj;
 
+    private final MatCleaner.Cleanable cleanable;
+
+    // direct buffer the pixels were wrapped from, and the data address it
+    // was wrapped at; kept so the buffer outlives the Mat and can be handed
+    // back by dataBuffer()
+    private ByteBuffer wrappedBuffer;
+    private long wrappedAddr;
+
     public Mat(long addr) {
         if (addr == 0)
             throw new UnsupportedOperationException("Native object address is NULL");
         nativeObj = addr;
+        cleanable = MatCleaner.register(this, addr);
     }
 
     //
@@ -20,7 +34,7 @@ public class Mat {
 
     // javadoc: Mat::Mat()
     public Mat() {
-        nativeObj = n_Mat();
+        this(n_Mat());
     }
 
     //
@@ -29,7 +43,7 @@ public class Mat {
 
     // javadoc: Mat::Mat(rows, cols, type)
     public Mat(int rows, int cols, int type) {
-        nativeObj = n_Mat(rows, cols, type);
+        this(n_Mat(rows, cols, type));
     }
 
     //
@@ -38,7 +52,8 @@ public class Mat {
 
     // javadoc: Mat::Mat(rows, cols, type, data)
     public Mat(int rows, int cols, int type, ByteBuffer data) {
-        nativeObj = n_Mat(rows, cols, type, data);
+        this(n_Mat(rows, cols, type, data));
+        wrap(data);
     }
 
     //
@@ -47,7 +62,20 @@ public class Mat {
 
     // javadoc: Mat::Mat(rows, cols, type, data, step)
     public Mat(int rows, int cols, int type, ByteBuffer data, long step) {
-        nativeObj = n_Mat(rows, cols, type, data, step);
+        this(n_Mat(rows, cols, type, data, step));
+        wrap(data);
+    }
+
+    private void wrap(ByteBuffer data) {
+        wrappedBuffer = data;
+        wrappedAddr = dataAddr();
+    }
+
+    // Creates a continuous Mat whose pixels live in a new direct
+    // ByteBuffer, so that dataBuffer() can expose them without copying.
+    public static Mat allocateDirect(int rows, int cols, int type) {
+        ByteBuffer data = ByteBuffer.allocateDirect(rows * cols * CvType.ELEM_SIZE(type));
+        return new Mat(rows, cols, type, data);
     }
 
     //
@@ -56,7 +84,7 @@ public class Mat {
 
     // javadoc: Mat::Mat(size, type)
     public Mat(Size size, int type) {
-        nativeObj = n_Mat(size.width, size.height, type);
+        this(n_Mat(size.width, size.height, type));
     }
 
     //
@@ -65,7 +93,7 @@ public class Mat {
 
     // javadoc: Mat::Mat(sizes, type)
     public Mat(int[] sizes, int type) {
-        nativeObj = n_Mat(sizes.length, sizes, type);
+        this(n_Mat(sizes.length, sizes, type));
     }
 
     //
@@ -74,7 +102,7 @@ public class Mat {
 
     // javadoc: Mat::Mat(rows, cols, type, s)
     public Mat(int rows, int cols, int type, Scalar s) {
-        nativeObj = n_Mat(rows, cols, type, s.val[0], s.val[1], s.val[2], s.val[3]);
+        this(n_Mat(rows, cols, type, s.val[0], s.val[1], s.val[2], s.val[3]));
     }
 
     //
@@ -83,7 +111,7 @@ public class Mat {
 
     // javadoc: Mat::Mat(size, type, s)
     public Mat(Size size, int type, Scalar s) {
-        nativeObj = n_Mat(size.width, size.height, type, s.val[0], s.val[1], s.val[2], s.val[3]);
+        this(n_Mat(size.width, size.height, type, s.val[0], s.val[1], s.val[2], s.val[3]));
     }
 
     //
@@ -92,7 +120,7 @@ public class Mat {
 
     // javadoc: Mat::Mat(sizes, type, s)
     public Mat(int[] sizes, int type, Scalar s) {
-        nativeObj = n_Mat(sizes.length, sizes, type, s.val[0], s.val[1], s.val[2], s.val[3]);
+        this(n_Mat(sizes.length, sizes, type, s.val[0], s.val[1], s.val[2], s.val[3]));
     }
 
     //
@@ -101,12 +129,12 @@ public class Mat {
 
     // javadoc: Mat::Mat(m, rowRange, colRange)
     public Mat(Mat m, Range rowRange, Range colRange) {
-        nativeObj = n_Mat(m.nativeObj, rowRange.start, rowRange.end, colRange.start, colRange.end);
+        this(n_Mat(m.nativeObj, rowRange.start, rowRange.end, colRange.start, colRange.end));
     }
 
     // javadoc: Mat::Mat(m, rowRange)
     public Mat(Mat m, Range rowRange) {
-        nativeObj = n_Mat(m.nativeObj, rowRange.start, rowRange.end);
+        this(n_Mat(m.nativeObj, rowRange.start, rowRange.end));
     }
 
     //
@@ -115,7 +143,7 @@ public class Mat {
 
     // javadoc: Mat::Mat(m, ranges)
     public Mat(Mat m, Range[] ranges) {
-        nativeObj = n_Mat(m.nativeObj, ranges);
+        this(n_Mat(m.nativeObj, ranges));
     }
 
     //
@@ -124,7 +152,7 @@ public class Mat {
 
     // javadoc: Mat::Mat(m, roi)
     public Mat(Mat m, Rect roi) {
-        nativeObj = n_Mat(m.nativeObj, roi.y, roi.y + roi.height, roi.x, roi.x + roi.width);
+        this(n_Mat(m.nativeObj, roi.y, roi.y + roi.height, roi.x, roi.x + roi.width));
     }
 
     //
@@ -325,6 +353,20 @@ public class Mat {
         return n_dataAddr(nativeObj);
     }
 
+    // Returns a native-order view of the pixels of a Mat created from a
+    // direct ByteBuffer (see allocateDirect()), covering rows * step bytes,
+    // or null if the Mat does not own such a buffer or a native call has
+    // reallocated its data since. Writes through the view show up in the
+    // Mat and vice versa.
+    public ByteBuffer dataBuffer() {
+        if (wrappedBuffer == null || dataAddr() != wrappedAddr)
+            return null;
+        ByteBuffer view = wrappedBuffer.duplicate();
+        view.clear();
+        view.limit((int) Math.min(view.capacity(), (long) rows() * step1() * elemSize1()));
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+
     //
     // C++: int Mat::depth()
     //
@@ -735,10 +777,13 @@ public class Mat {
         return new Mat(n_zeros(sizes.length, sizes, type));
     }
 
+    // Deletes the native header right away instead of waiting for the
+    // garbage collector. The pixel data is freed with it unless another
+    // Mat still references the same data. Calling close() again does
+    // nothing.
     @Override
-    protected void finalize() throws Throwable {
-        n_delete(nativeObj);
-        super.finalize();
+    public void close() {
+        cleanable.clean();
     }
 
     // javadoc:Mat::toString()
@@ -946,6 +991,14 @@ public class Mat {
         throw new UnsupportedOperationException("Mat data type is not compatible: " + t);
     }
 
+    // Copies the remaining bytes of a direct buffer into the Mat, starting
+    // at element (row, col) of a continuous Mat, and advances the buffer's
+    // position past them. A non-continuous Mat can only be written whole,
+    // from (0, 0). Returns the number of bytes copied.
+    public int put(int row, int col, ByteBuffer data) {
+        return copyBuffer(row, col, data, true);
+    }
+
     // javadoc:Mat::get(row,col,data)
     public int get(int row, int col, byte[] data) {
         int t = type();
@@ -1111,6 +1164,54 @@ public class Mat {
         return nGet(nativeObj, row, col);
     }
 
+    // Counterpart of put(row, col, ByteBuffer): fills the remaining bytes
+    // of a direct buffer from the Mat and advances its position.
+    public int get(int row, int col, ByteBuffer data) {
+        return copyBuffer(row, col, data, false);
+    }
+
+    // copies between a direct buffer and the elements from (row, col) on,
+    // through one row views: copyTo() goes row by row, which is slow for
+    // the count x 1 vectors used by Converters
+    private int copyBuffer(int row, int col, ByteBuffer data, boolean put) {
+        if (data == null || !data.isDirect())
+            throw new IllegalArgumentException("A direct ByteBuffer is required");
+        int t = type();
+        long elemSize = elemSize();
+        if (data.remaining() % elemSize != 0)
+            throw new UnsupportedOperationException(
+                    "Provided data size (" + data.remaining() +
+                            ") should be multiple of the Mat element size (" + elemSize + ")");
+        long offset = (long) row * cols() + col;
+        long count = Math.min(data.remaining() / elemSize, total() - offset);
+        if (row < 0 || col < 0 || count <= 0)
+            return 0;
+
+        if (isContinuous()) {
+            try (Mat view = new Mat(1, (int) count, t, data.slice());
+                 Mat flat = reshape(0, 1);
+                 Mat range = flat.colRange((int) offset, (int) (offset + count))) {
+                if (put)
+                    view.copyTo(range);
+                else
+                    range.copyTo(view);
+            }
+        } else if (offset == 0 && count == total() && dims() == 2) {
+            try (Mat view = new Mat(rows(), cols(), t, data.slice())) {
+                if (put)
+                    view.copyTo(this);
+                else
+                    copyTo(view);
+            }
+        } else {
+            throw new UnsupportedOperationException(
+                    "Partial copies need a continuous Mat");
+        }
+        int bytes = (int) (count * elemSize);
+        data.position(data.position() + bytes);
+        return bytes;
+    }
+
     // javadoc:Mat::get(idx)
     public double[] get(int[] idx) {
         if (idx.length != dims())
@@ -1361,7 +1462,12 @@ public class Mat {
     // C++: static Mat Mat::zeros(int ndims, const int* sizes, int type)
     private static native long n_zeros(int ndims, int[] sizes, int type);
 
-    // native support for java finalize()
+    // called by MatCleaner exactly once per native header
+    static void delete(long nativeObj) {
+        n_delete(nativeObj);
+    }
+
+    // native support for close() and MatCleaner
     private static native void n_delete(long nativeObj);
 
     private static native int nPutD(long self, int row, int col, int count, double[] data);
@@ -0,0 +1,79 @@
+package org.opencv.core;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Frees native Mat headers without finalize(). Every Mat registers a
+// phantom reference here; the header is deleted either explicitly through
+// Mat.close() or by a daemon thread once the Mat has been collected.
+// java.lang.ref.Cleaner is not available on Java 8 and Android before
+// API 33, so this is the same mechanism built on PhantomReference.
+final class MatCleaner {
+
+    private static final ReferenceQueue<Mat> QUEUE = new ReferenceQueue<Mat>();
+
+    // phantom references are only enqueued while they are reachable
+    // themselves, so every pending one is kept here until it is cleaned
+    static final Set<Cleanable> LIVE =
+            Collections.newSetFromMap(new ConcurrentHashMap<Cleanable, Boolean>());
+
+    static {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        ((Cleanable) QUEUE.remove()).clean();
+                    } catch (InterruptedException e) {
+                        // keep draining; the thread lives as long as the process
+                    }
+                }
+            }
+        }, "opencv-mat-cleaner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private MatCleaner() {
+    }
+
+    static Cleanable register(Mat mat, long nativeObj) {
+        Cleanable cleanable;
+        if (MatLeakTracker.isEnabled()) {
+            // sized while the header is still private to its creator; the
+            // tracker never touches the native object afterwards, as it may
+            // be closed at any time by another thread
+            cleanable = new Cleanable(mat, nativeObj, MatLeakTracker.allocationSite(),
+                    mat.total() * mat.elemSize());
+        } else {
+            cleanable = new Cleanable(mat, nativeObj, null, 0);
+        }
+        LIVE.add(cleanable);
+        return cleanable;
+    }
+
+    static final class Cleanable extends PhantomReference<Mat> {
+        final long nativeObj;
+        // only set while leak tracking is enabled: allocation site and
+        // pixel bytes at creation
+        final String site;
+        final long bytes;
+
+        Cleanable(Mat mat, long nativeObj, String site, long bytes) {
+            super(mat, QUEUE);
+            this.nativeObj = nativeObj;
+            this.site = site;
+            this.bytes = bytes;
+        }
+
+        void clean() {
+            if (LIVE.remove(this)) {
+                clear();
+                Mat.delete(nativeObj);
+            }
+        }
+    }
+}
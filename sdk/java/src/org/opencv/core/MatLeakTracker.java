@@ -0,0 +1,110 @@
+package org.opencv.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Debug aid that reports which code holds on to native Mats.
+ * <p>
+ * While enabled, every new {@link Mat} records the first stack frame outside the core Mat classes
+ * and {@code Converters} that created it. {@link #snapshot()} groups the Mats that have been
+ * neither closed nor reclaimed yet by that allocation site, with their count and the bytes of
+ * pixel data they had when created. Capturing the stack makes every allocation considerably
+ * slower, so tracking is off by default; it can be switched on with {@link #setEnabled(boolean)}
+ * or the {@code opencv.mat.leaktracker} system property. Mats created while tracking was off are
+ * only included in {@link #getLiveCount()}.
+ */
+public final class MatLeakTracker {
+
+    private static volatile boolean enabled = Boolean.getBoolean("opencv.mat.leaktracker");
+
+    private MatLeakTracker() {
+    }
+
+    public static void setEnabled(boolean enabled) {
+        MatLeakTracker.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Number of native Mat headers that have been neither closed nor reclaimed, tracked or not. */
+    public static int getLiveCount() {
+        return MatCleaner.LIVE.size();
+    }
+
+    /** Live tracked Mats grouped by allocation site, largest total size first. */
+    public static List<Site> snapshot() {
+        Map<String, long[]> totals = new HashMap<String, long[]>();
+        for (MatCleaner.Cleanable cleanable : MatCleaner.LIVE) {
+            if (cleanable.site == null) {
+                continue;
+            }
+            long[] total = totals.get(cleanable.site);
+            if (total == null) {
+                total = new long[2];
+                totals.put(cleanable.site, total);
+            }
+            total[0]++;
+            total[1] += cleanable.bytes;
+        }
+
+        List<Site> sites = new ArrayList<Site>(totals.size());
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            sites.add(new Site(entry.getKey(), (int) entry.getValue()[0], entry.getValue()[1]));
+        }
+        Collections.sort(sites, new Comparator<Site>() {
+            @Override
+            public int compare(Site a, Site b) {
+                return a.bytes != b.bytes ? Long.compare(b.bytes, a.bytes) : b.count - a.count;
+            }
+        });
+        return sites;
+    }
+
+    /** Multi-line report of {@link #snapshot()}, e.g. for logcat. */
+    public static String report() {
+        StringBuilder report = new StringBuilder("Live Mats: ").append(getLiveCount());
+        for (Site site : snapshot()) {
+            report.append('\n').append(site);
+        }
+        return report.toString();
+    }
+
+    // first caller outside of the Mat classes and Converters
+    static String allocationSite() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (!className.startsWith("org.opencv.core.")
+                    && !className.startsWith("org.opencv.utils.")) {
+                return element.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    /** Live Mats created at one place in the code. */
+    public static final class Site {
+        /** Stack frame that created the Mats. */
+        public final String site;
+        public final int count;
+        /** Pixel data of the Mats, as sized when each was created. */
+        public final long bytes;
+
+        Site(String site, int count, long bytes) {
+            this.site = site;
+            this.count = count;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return count + " Mats, " + bytes + " bytes at " + site;
+        }
+    }
+}
@@ -59,6 +59,35 @@ public class MatOfFloat extends Mat {
         return a;
     }
 
+    /**
+     * Fills {@code a} with the values and returns their number. Unlike {@link #toArray()} nothing
+     * is allocated.
+     */
+    public int toArray(float[] a) {
+        if(empty())
+            return 0;
+        int num = checkVector(_channels, _depth);
+        if(num < 0)
+            throw new RuntimeException("Native Mat has unexpected type or size: " + toString());
+        if(a.length < num * _channels)
+            throw new IllegalArgumentException("Array too small for " + num + " values");
+        if(num > 0)
+            get(0, 0, a); //TODO: check ret val!
+        return num;
+    }
+
+    /** Sets the first {@code num} values of {@code a}. */
+    public void fromArray(float[] a, int num) {
+        if(a.length < num * _channels)
+            throw new IllegalArgumentException("Array holds fewer than " + num + " values");
+        if(num == 0) {
+            release();
+            return;
+        }
+        alloc(num);
+        put(0, 0, a); //TODO: check ret val!
+    }
+
     public void fromList(List<Float> lb) {
         if(lb==null || lb.size()==0)
             return;
@@ -9,6 +9,8 @@ public class MatOfKeyPoint extends Mat {
     // 32FC7
     private static final int _depth = CvType.CV_32F;
     private static final int _channels = 7;
+    // scratch buffer of the pooled accessors, kept across calls
+    private float[] scratch;
 
     public MatOfKeyPoint() {
         super();
@@ -74,6 +76,91 @@ public class MatOfKeyPoint extends Mat {
         return a;
     }
 
+    /**
+     * Fills {@code buff} with the keypoints, packed as x, y, size, angle, response, octave,
+     * class_id, and returns their number. Nothing is allocated; the buffer length must be a
+     * multiple of 7.
+     */
+    public int toArray(float[] buff) {
+        int num = (int) total();
+        if(buff.length < num * _channels)
+            throw new IllegalArgumentException("Buffer too small for " + num + " keypoints");
+        if(num > 0)
+            get(0, 0, buff); //TODO: check ret val!
+        return num;
+    }
+
+    /**
+     * Copies the keypoints into the elements of {@code a}, creating only the ones that are null,
+     * and returns their number. A pool passed in every frame is refilled without allocating.
+     */
+    public int toArray(KeyPoint[] a) {
+        int num = (int) total();
+        if(a.length < num)
+            throw new IllegalArgumentException("Array too small for " + num + " keypoints");
+        if(num == 0)
+            return 0;
+        float buff[] = scratch(num * _channels);
+        get(0, 0, buff); //TODO: check ret val!
+        for(int i=0; i<num; i++) {
+            KeyPoint o = a[i];
+            if(o == null)
+                a[i] = o = new KeyPoint();
+            o.pt.x = buff[i*_channels];
+            o.pt.y = buff[i*_channels+1];
+            o.size = buff[i*_channels+2];
+            o.angle = buff[i*_channels+3];
+            o.response = buff[i*_channels+4];
+            o.octave = (int) buff[i*_channels+5];
+            o.class_id = (int) buff[i*_channels+6];
+        }
+        return num;
+    }
+
+    /**
+     * Sets the first {@code num} keypoints of {@code buff}, laid out as in
+     * {@link #toArray(float[])}.
+     */
+    public void fromArray(float[] buff, int num) {
+        if(buff.length < num * _channels)
+            throw new IllegalArgumentException("Buffer holds fewer than " + num + " keypoints");
+        if(num == 0) {
+            release();
+            return;
+        }
+        alloc(num);
+        put(0, 0, buff); //TODO: check ret val!
+    }
+
+    /** Sets the first {@code num} keypoints of {@code a}. */
+    public void fromArray(KeyPoint[] a, int num) {
+        if(a.length < num)
+            throw new IllegalArgumentException("Array holds fewer than " + num + " keypoints");
+        if(num == 0) {
+            release();
+            return;
+        }
+        alloc(num);
+        float buff[] = scratch(num * _channels);
+        for(int i=0; i<num; i++) {
+            KeyPoint o = a[i];
+            buff[_channels*i+0] = (float) o.pt.x;
+            buff[_channels*i+1] = (float) o.pt.y;
+            buff[_channels*i+2] = o.size;
+            buff[_channels*i+3] = o.angle;
+            buff[_channels*i+4] = o.response;
+            buff[_channels*i+5] = o.octave;
+            buff[_channels*i+6] = o.class_id;
+        }
+        put(0, 0, buff); //TODO: check ret val!
+    }
+
+    private float[] scratch(int size) {
+        if(scratch == null || scratch.length < size)
+            scratch = new float[size];
+        return scratch;
+    }
+
     public void fromList(List<KeyPoint> lkp) {
         KeyPoint akp[] = lkp.toArray(new KeyPoint[0]);
         fromArray(akp);
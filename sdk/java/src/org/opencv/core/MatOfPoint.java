@@ -7,6 +7,8 @@ public class MatOfPoint extends Mat {
     // 32SC2
     private static final int _depth = CvType.CV_32S;
     private static final int _channels = 2;
+    // scratch buffer of the pooled accessors, kept across calls
+    private int[] scratch;
 
     public MatOfPoint() {
         super();
@@ -66,6 +68,80 @@ public class MatOfPoint extends Mat {
         return ap;
     }
 
+    /**
+     * Fills {@code buff} with the points, packed as x, y, and returns their number. Nothing is
+     * allocated; the buffer length must be a multiple of 2.
+     */
+    public int toArray(int[] buff) {
+        int num = (int) total();
+        if(buff.length < num * _channels)
+            throw new IllegalArgumentException("Buffer too small for " + num + " points");
+        if(num > 0)
+            get(0, 0, buff); //TODO: check ret val!
+        return num;
+    }
+
+    /**
+     * Copies the points into the elements of {@code a}, creating only the ones that are null,
+     * and returns their number. A pool passed in every frame is refilled without allocating.
+     */
+    public int toArray(Point[] a) {
+        int num = (int) total();
+        if(a.length < num)
+            throw new IllegalArgumentException("Array too small for " + num + " points");
+        if(num == 0)
+            return 0;
+        int buff[] = scratch(num * _channels);
+        get(0, 0, buff); //TODO: check ret val!
+        for(int i=0; i<num; i++) {
+            Point o = a[i];
+            if(o == null)
+                a[i] = o = new Point();
+            o.x = buff[i*_channels];
+            o.y = buff[i*_channels+1];
+        }
+        return num;
+    }
+
+    /**
+     * Sets the first {@code num} points of {@code buff}, laid out as in
+     * {@link #toArray(int[])}.
+     */
+    public void fromArray(int[] buff, int num) {
+        if(buff.length < num * _channels)
+            throw new IllegalArgumentException("Buffer holds fewer than " + num + " points");
+        if(num == 0) {
+            release();
+            return;
+        }
+        alloc(num);
+        put(0, 0, buff); //TODO: check ret val!
+    }
+
+    /** Sets the first {@code num} points of {@code a}. */
+    public void fromArray(Point[] a, int num) {
+        if(a.length < num)
+            throw new IllegalArgumentException("Array holds fewer than " + num + " points");
+        if(num == 0) {
+            release();
+            return;
+        }
+        alloc(num);
+        int buff[] = scratch(num * _channels);
+        for(int i=0; i<num; i++) {
+            Point o = a[i];
+            buff[_channels*i+0] = (int) o.x;
+            buff[_channels*i+1] = (int) o.y;
+        }
+        put(0, 0, buff); //TODO: check ret val!
+    }
+
+    private int[] scratch(int size) {
+        if(scratch == null || scratch.length < size)
+            scratch = new int[size];
+        return scratch;
+    }
+
     public void fromList(List<Point> lp) {
         Point ap[] = lp.toArray(new Point[0]);
         fromArray(ap);
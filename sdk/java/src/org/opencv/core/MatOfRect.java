@@ -8,6 +8,8 @@ public class MatOfRect extends Mat {
     // 32SC4
     private static final int _depth = CvType.CV_32S;
     private static final int _channels = 4;
+    // scratch buffer of the pooled accessors, kept across calls
+    private int[] scratch;
 
     public MatOfRect() {
         super();
@@ -69,6 +71,85 @@ public class MatOfRect extends Mat {
             a[i] = new Rect(buff[i*_channels], buff[i*_channels+1], buff[i*_channels+2], buff[i*_channels+3]);
         return a;
     }
+
+    /**
+     * Fills {@code buff} with the rectangles, packed as x, y, width, height, and returns their
+     * number. Nothing is allocated; the buffer length must be a multiple of 4.
+     */
+    public int toArray(int[] buff) {
+        int num = (int) total();
+        if(buff.length < num * _channels)
+            throw new IllegalArgumentException("Buffer too small for " + num + " rectangles");
+        if(num > 0)
+            get(0, 0, buff); //TODO: check ret val!
+        return num;
+    }
+
+    /**
+     * Copies the rectangles into the elements of {@code a}, creating only the ones that are null,
+     * and returns their number. A pool passed in every frame is refilled without allocating.
+     */
+    public int toArray(Rect[] a) {
+        int num = (int) total();
+        if(a.length < num)
+            throw new IllegalArgumentException("Array too small for " + num + " rectangles");
+        if(num == 0)
+            return 0;
+        int buff[] = scratch(num * _channels);
+        get(0, 0, buff); //TODO: check ret val!
+        for(int i=0; i<num; i++) {
+            Rect o = a[i];
+            if(o == null)
+                a[i] = o = new Rect();
+            o.x = buff[i*_channels];
+            o.y = buff[i*_channels+1];
+            o.width = buff[i*_channels+2];
+            o.height = buff[i*_channels+3];
+        }
+        return num;
+    }
+
+    /**
+     * Sets the first {@code num} rectangles of {@code buff}, laid out as in
+     * {@link #toArray(int[])}.
+     */
+    public void fromArray(int[] buff, int num) {
+        if(buff.length < num * _channels)
+            throw new IllegalArgumentException("Buffer holds fewer than " + num + " rectangles");
+        if(num == 0) {
+            release();
+            return;
+        }
+        alloc(num);
+        put(0, 0, buff); //TODO: check ret val!
+    }
+
+    /** Sets the first {@code num} rectangles of {@code a}. */
+    public void fromArray(Rect[] a, int num) {
+        if(a.length < num)
+            throw new IllegalArgumentException("Array holds fewer than " + num + " rectangles");
+        if(num == 0) {
+            release();
+            return;
+        }
+        alloc(num);
+        int buff[] = scratch(num * _channels);
+        for(int i=0; i<num; i++) {
+            Rect o = a[i];
+            buff[_channels*i+0] = o.x;
+            buff[_channels*i+1] = o.y;
+            buff[_channels*i+2] = o.width;
+            buff[_channels*i+3] = o.height;
+        }
+        put(0, 0, buff); //TODO: check ret val!
+    }
+
+    private int[] scratch(int size) {
+        if(scratch == null || scratch.length < size)
+            scratch = new int[size];
+        return scratch;
+    }
+
     public void fromList(List<Rect> lr) {
         Rect ap[] = lr.toArray(new Rect[0]);
         fromArray(ap);
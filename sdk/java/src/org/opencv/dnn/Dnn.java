@@ -678,7 +678,9 @@ public class Dnn {
      */
     public static Mat blobFromImages(List<Mat> images, double scalefactor, Size size, Scalar mean, boolean swapRB, boolean crop, int ddepth) {
         Mat images_mat = Converters.vector_Mat_to_Mat(images);
-        return new Mat(blobFromImages_0(images_mat.nativeObj, scalefactor, size.width, size.height, mean.val[0], mean.val[1], mean.val[2], mean.val[3], swapRB, crop, ddepth));
+        Mat retVal = new Mat(blobFromImages_0(images_mat.nativeObj, scalefactor, size.width, size.height, mean.val[0], mean.val[1], mean.val[2], mean.val[3], swapRB, crop, ddepth));
+        images_mat.close();
+        return retVal;
     }
 
     /**
@@ -700,7 +702,9 @@ public class Dnn {
      */
     public static Mat blobFromImages(List<Mat> images, double scalefactor, Size size, Scalar mean, boolean swapRB, boolean crop) {
         Mat images_mat = Converters.vector_Mat_to_Mat(images);
-        return new Mat(blobFromImages_1(images_mat.nativeObj, scalefactor, size.width, size.height, mean.val[0], mean.val[1], mean.val[2], mean.val[3], swapRB, crop));
+        Mat retVal = new Mat(blobFromImages_1(images_mat.nativeObj, scalefactor, size.width, size.height, mean.val[0], mean.val[1], mean.val[2], mean.val[3], swapRB, crop));
+        images_mat.close();
+        return retVal;
     }
 
     /**
@@ -721,7 +725,9 @@ public class Dnn {
      */
     public static Mat blobFromImages(List<Mat> images, double scalefactor, Size size, Scalar mean, boolean swapRB) {
         Mat images_mat = Converters.vector_Mat_to_Mat(images);
-        return new Mat(blobFromImages_2(images_mat.nativeObj, scalefactor, size.width, size.height, mean.val[0], mean.val[1], mean.val[2], mean.val[3], swapRB));
+        Mat retVal = new Mat(blobFromImages_2(images_mat.nativeObj, scalefactor, size.width, size.height, mean.val[0], mean.val[1], mean.val[2], mean.val[3], swapRB));
+        images_mat.close();
+        return retVal;
     }
 
     /**
@@ -741,7 +747,9 @@ public class Dnn {
      */
     public static Mat blobFromImages(List<Mat> images, double scalefactor, Size size, Scalar mean) {
         Mat images_mat = Converters.vector_Mat_to_Mat(images);
-        return new Mat(blobFromImages_3(images_mat.nativeObj, scalefactor, size.width, size.height, mean.val[0], mean.val[1], mean.val[2], mean.val[3]));
+        Mat retVal = new Mat(blobFromImages_3(images_mat.nativeObj, scalefactor, size.width, size.height, mean.val[0], mean.val[1], mean.val[2], mean.val[3]));
+        images_mat.close();
+        return retVal;
     }
 
     /**
@@ -760,7 +768,9 @@ public class Dnn {
      */
     public static Mat blobFromImages(List<Mat> images, double scalefactor, Size size) {
         Mat images_mat = Converters.vector_Mat_to_Mat(images);
-        return new Mat(blobFromImages_4(images_mat.nativeObj, scalefactor, size.width, size.height));
+        Mat retVal = new Mat(blobFromImages_4(images_mat.nativeObj, scalefactor, size.width, size.height));
+        images_mat.close();
+        return retVal;
     }
 
     /**
@@ -778,7 +788,9 @@ public class Dnn {
      */
     public static Mat blobFromImages(List<Mat> images, double scalefactor) {
         Mat images_mat = Converters.vector_Mat_to_Mat(images);
-        return new Mat(blobFromImages_5(images_mat.nativeObj, scalefactor));
+        Mat retVal = new Mat(blobFromImages_5(images_mat.nativeObj, scalefactor));
+        images_mat.close();
+        return retVal;
     }
 
     /**
@@ -795,7 +807,9 @@ public class Dnn {
      */
     public static Mat blobFromImages(List<Mat> images) {
         Mat images_mat = Converters.vector_Mat_to_Mat(images);
-        return new Mat(blobFromImages_6(images_mat.nativeObj));
+        Mat retVal = new Mat(blobFromImages_6(images_mat.nativeObj));
+        images_mat.close();
+        return retVal;
     }
 
 
@@ -816,7 +830,7 @@ public class Dnn {
         Mat images__mat = new Mat();
         imagesFromBlob_0(blob_.nativeObj, images__mat.nativeObj);
         Converters.Mat_to_vector_Mat(images__mat, images_);
-        images__mat.release();
+        images__mat.close();
     }
 
 
@@ -39,8 +39,9 @@ public class Layer extends Algorithm {
         Mat inputs_mat = Converters.vector_Mat_to_Mat(inputs);
         Mat outputs_mat = new Mat();
         finalize_0(nativeObj, inputs_mat.nativeObj, outputs_mat.nativeObj);
+        inputs_mat.close();
         Converters.Mat_to_vector_Mat(outputs_mat, outputs);
-        outputs_mat.release();
+        outputs_mat.close();
     }
 
 
@@ -61,10 +62,11 @@ public class Layer extends Algorithm {
         Mat outputs_mat = new Mat();
         Mat internals_mat = Converters.vector_Mat_to_Mat(internals);
         run_0(nativeObj, inputs_mat.nativeObj, outputs_mat.nativeObj, internals_mat.nativeObj);
+        inputs_mat.close();
         Converters.Mat_to_vector_Mat(outputs_mat, outputs);
-        outputs_mat.release();
+        outputs_mat.close();
         Converters.Mat_to_vector_Mat(internals_mat, internals);
-        internals_mat.release();
+        internals_mat.close();
     }
 
 
@@ -91,6 +93,7 @@ public class Layer extends Algorithm {
         List<Mat> retVal = new ArrayList<Mat>();
         Mat retValMat = new Mat(get_blobs_0(nativeObj));
         Converters.Mat_to_vector_Mat(retValMat, retVal);
+        retValMat.close();
         return retVal;
     }
 
@@ -102,6 +105,7 @@ public class Layer extends Algorithm {
     public void set_blobs(List<Mat> blobs) {
         Mat blobs_mat = Converters.vector_Mat_to_Mat(blobs);
         set_blobs_0(nativeObj, blobs_mat.nativeObj);
+        blobs_mat.close();
     }
 
 
@@ -259,7 +259,7 @@ public class Net {
         Mat outputBlobs_mat = new Mat();
         forward_2(nativeObj, outputBlobs_mat.nativeObj, outputName);
         Converters.Mat_to_vector_Mat(outputBlobs_mat, outputBlobs);
-        outputBlobs_mat.release();
+        outputBlobs_mat.close();
     }
 
     /**
@@ -271,7 +271,7 @@ public class Net {
         Mat outputBlobs_mat = new Mat();
         forward_3(nativeObj, outputBlobs_mat.nativeObj);
         Converters.Mat_to_vector_Mat(outputBlobs_mat, outputBlobs);
-        outputBlobs_mat.release();
+        outputBlobs_mat.close();
     }
 
 
@@ -288,7 +288,7 @@ public class Net {
         Mat outputBlobs_mat = new Mat();
         forward_4(nativeObj, outputBlobs_mat.nativeObj, outBlobNames);
         Converters.Mat_to_vector_Mat(outputBlobs_mat, outputBlobs);
-        outputBlobs_mat.release();
+        outputBlobs_mat.close();
     }
 
 
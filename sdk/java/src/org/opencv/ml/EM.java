@@ -165,7 +165,7 @@ public class EM extends StatModel {
         Mat covs_mat = new Mat();
         getCovs_0(nativeObj, covs_mat.nativeObj);
         Converters.Mat_to_vector_Mat(covs_mat, covs);
-        covs_mat.release();
+        covs_mat.close();
     }
 
 
@@ -1,5 +1,6 @@
 package org.opencv.utils;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -539,7 +540,7 @@ public class Converters {
         for (Mat mi : mats) {
             MatOfPoint pt = new MatOfPoint(mi);
             pts.add(pt);
-            mi.release();
+            mi.close();
         }
         mats.clear();
     }
@@ -557,7 +558,7 @@ public class Converters {
         for (Mat mi : mats) {
             MatOfPoint2f pt = new MatOfPoint2f(mi);
             pts.add(pt);
-            mi.release();
+            mi.close();
         }
         mats.clear();
     }
@@ -588,7 +589,7 @@ public class Converters {
         for (Mat mi : mats) {
             MatOfPoint3f pt = new MatOfPoint3f(mi);
             pts.add(pt);
-            mi.release();
+            mi.close();
         }
         mats.clear();
     }
@@ -631,7 +632,7 @@ public class Converters {
         for (Mat mi : mats) {
             MatOfKeyPoint vkp = new MatOfKeyPoint(mi);
             kps.add(vkp);
-            mi.release();
+            mi.close();
         }
         mats.clear();
     }
@@ -731,7 +732,7 @@ public class Converters {
         for (Mat mi : mats) {
             MatOfDMatch vdm = new MatOfDMatch(mi);
             lvdm.add(vdm);
-            mi.release();
+            mi.close();
         }
         mats.clear();
     }
@@ -762,7 +763,7 @@ public class Converters {
             List<Byte> lb = new ArrayList<Byte>();
             Mat_to_vector_char(mi, lb);
             llb.add(lb);
-            mi.release();
+            mi.close();
         }
         mats.clear();
     }
@@ -803,4 +804,161 @@ public class Converters {
             rs.add(new RotatedRect(new Point(buff[5 * i], buff[5 * i + 1]), new Size(buff[5 * i + 2], buff[5 * i + 3]), buff[5 * i + 4]));
         }
     }
+
+    //
+    // Primitive array and direct buffer variants of the vector conversions
+    // above. They copy in bulk instead of boxing every element and, when
+    // reading from a Mat, fill a buffer owned by the caller so that
+    // per-frame conversions allocate nothing on the Java heap.
+    //
+
+    public static Mat vector_float_to_Mat(float[] fs) {
+        Mat res;
+        if (fs != null && fs.length > 0) {
+            res = new Mat(fs.length, 1, CvType.CV_32FC1);
+            res.put(0, 0, fs);
+        } else {
+            res = new Mat();
+        }
+        return res;
+    }
+
+    // returns the number of elements written to fs
+    public static int Mat_to_vector_float(Mat m, float[] fs) {
+        int count = checkVector(m, CvType.CV_32FC1, fs == null ? -1 : fs.length);
+        if (count > 0)
+            m.get(0, 0, fs);
+        return count;
+    }
+
+    public static Mat vector_int_to_Mat(int[] is) {
+        Mat res;
+        if (is != null && is.length > 0) {
+            res = new Mat(is.length, 1, CvType.CV_32SC1);
+            res.put(0, 0, is);
+        } else {
+            res = new Mat();
+        }
+        return res;
+    }
+
+    // returns the number of elements written to is
+    public static int Mat_to_vector_int(Mat m, int[] is) {
+        int count = checkVector(m, CvType.CV_32SC1, is == null ? -1 : is.length);
+        if (count > 0)
+            m.get(0, 0, is);
+        return count;
+    }
+
+    public static Mat vector_uchar_to_Mat(byte[] bs) {
+        return vector_bytes_to_Mat(bs, CvType.CV_8UC1);
+    }
+
+    // returns the number of elements written to us
+    public static int Mat_to_vector_uchar(Mat m, byte[] us) {
+        int count = checkVector(m, CvType.CV_8UC1, us == null ? -1 : us.length);
+        if (count > 0)
+            m.get(0, 0, us);
+        return count;
+    }
+
+    public static Mat vector_char_to_Mat(byte[] bs) {
+        return vector_bytes_to_Mat(bs, CvType.CV_8SC1);
+    }
+
+    // returns the number of elements written to bs
+    public static int Mat_to_vector_char(Mat m, byte[] bs) {
+        int count = checkVector(m, CvType.CV_8SC1, bs == null ? -1 : bs.length);
+        if (count > 0)
+            m.get(0, 0, bs);
+        return count;
+    }
+
+    public static Mat vector_double_to_Mat(double[] ds) {
+        Mat res;
+        if (ds != null && ds.length > 0) {
+            res = new Mat(ds.length, 1, CvType.CV_64FC1);
+            res.put(0, 0, ds);
+        } else {
+            res = new Mat();
+        }
+        return res;
+    }
+
+    // returns the number of elements written to ds
+    public static int Mat_to_vector_double(Mat m, double[] ds) {
+        int count = checkVector(m, CvType.CV_64FC1, ds == null ? -1 : ds.length);
+        if (count > 0)
+            m.get(0, 0, ds);
+        return count;
+    }
+
+    // Copies the remaining bytes of a direct buffer into a new count x 1 Mat
+    // of the given type, e.g. CV_32FC1 for native-order floats. The buffer
+    // position is not changed.
+    public static Mat buffer_to_Mat(ByteBuffer buffer, int type) {
+        if (buffer == null || !buffer.isDirect())
+            throw new IllegalArgumentException("A direct ByteBuffer is required");
+        int elemSize = CvType.ELEM_SIZE(type);
+        int count = buffer.remaining() / elemSize;
+        if (count == 0)
+            return new Mat();
+
+        ByteBuffer data = buffer.duplicate();
+        data.limit(data.position() + count * elemSize);
+        Mat res = new Mat(count, 1, type);
+        res.put(0, 0, data);
+        return res;
+    }
+
+    // Copies every element of m into a direct buffer, starting at its
+    // position, and advances the position past them. Returns the number of
+    // bytes written.
+    public static int Mat_to_buffer(Mat m, ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect())
+            throw new IllegalArgumentException("A direct ByteBuffer is required");
+        if (m == null)
+            throw new IllegalArgumentException("Input Mat can't be null");
+        long bytes = m.total() * m.elemSize();
+        if (bytes > buffer.remaining())
+            throw new IllegalArgumentException(
+                    "Buffer has " + buffer.remaining() + " bytes left, " + bytes + " needed\n" + m);
+        if (bytes == 0)
+            return 0;
+
+        ByteBuffer data = buffer.duplicate();
+        data.limit(data.position() + (int) bytes);
+        m.get(0, 0, data);
+        buffer.position(data.position());
+        return (int) bytes;
+    }
+
+    private static Mat vector_bytes_to_Mat(byte[] bs, int type) {
+        Mat res;
+        if (bs != null && bs.length > 0) {
+            res = new Mat(bs.length, 1, type);
+            res.put(0, 0, bs);
+        } else {
+            res = new Mat();
+        }
+        return res;
+    }
+
+    // validates a count x 1 vector Mat and the output capacity, returns count
+    private static int checkVector(Mat m, int type, int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Output array can't be null");
+        if (m == null)
+            throw new IllegalArgumentException("Input Mat can't be null");
+        int count = m.rows();
+        if (count == 0 && m.empty())
+            return 0;
+        if (type != m.type() || m.cols() != 1)
+            throw new IllegalArgumentException(
+                    CvType.typeToString(type) + " != m.type() ||  m.cols()!=1\n" + m);
+        if (count > capacity)
+            throw new IllegalArgumentException(
+                    "Output array holds " + capacity + " elements, " + count + " needed");
+        return count;
+    }
 }